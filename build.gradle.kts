@@ -31,4 +31,35 @@ tasks.test {
     useJUnitPlatform()
     dependsOn(":DependencyCheckerTests:ModuleA:jar", ":DependencyCheckerTests:ModuleB:jar")
     dependsOn(":processTestResources")
-}
\ No newline at end of file
+}
+// JMH benchmarks in src/jmh/java, run with ./gradlew jmh [-PjmhArgs="<regex> <jmh options>"]
+// the synthetic classpath generator is shared with the tests
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks against the test fixtures and synthetic classpaths"
+    classpath = jmh.runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    args((findProperty("jmhArgs") as String?).orEmpty().split(" ").filter { it.isNotBlank() })
+    dependsOn(":DependencyCheckerTests:ModuleA:jar", ":DependencyCheckerTests:ModuleB:jar")
+}
+
+// writes a synthetic classpath for load tests, e.g. ./gradlew generateClasspath -PgeneratorArgs="build/synthetic --classes 100000"
+tasks.register<JavaExec>("generateClasspath") {
+    group = "benchmark"
+    description = "Generates a synthetic classpath with ClasspathGenerator"
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass = "loomt.ClasspathGenerator"
+    args((findProperty("generatorArgs") as String?).orEmpty().split(" ").filter { it.isNotBlank() })
+}
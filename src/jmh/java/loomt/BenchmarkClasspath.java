@@ -0,0 +1,41 @@
+package loomt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Classpath a benchmark runs against: the {@code DependencyCheckerTests} fixtures or a synthetic classpath
+ * @param rootClassName class the traversal starts from
+ * @param jarPaths paths of the JAR files
+ */
+record BenchmarkClasspath(String rootClassName, List<String> jarPaths) {
+    private static final String FIXTURES = "build/resources/test/";
+
+    /**
+     * @param name {@code fixtures} or the number of classes of a synthetic classpath
+     * @return the classpath
+     * @throws IOException if an I/O error has occurred while generating a synthetic classpath
+     */
+    static BenchmarkClasspath of(String name) throws IOException {
+        if (name.equals("fixtures")) {
+            return new BenchmarkClasspath("com.jetbrains.internship2024.ClassB", List.of(FIXTURES + "ModuleA-1.0.jar",
+                    FIXTURES + "ModuleB-1.0.jar", FIXTURES + "commons-io-2.16.1.jar"));
+        }
+        ClasspathGenerator generator = new ClasspathGenerator();
+        generator.setClassCount(Integer.parseInt(name));
+        // generated classpaths are reproducible, so they are kept between runs
+        Path directory = Path.of("build", "jmh-classpaths", name);
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                List<String> jars = files.map(Path::toString).sorted().toList();
+                if (!jars.isEmpty()) {
+                    return new BenchmarkClasspath(generator.getRootClassName(), jars);
+                }
+            }
+        }
+        return new BenchmarkClasspath(generator.getRootClassName(), generator.generate(directory));
+    }
+}
@@ -0,0 +1,57 @@
+package loomt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the dependencies of a root class, with a new checker every time (cold)
+ * and with a checker kept between calls like the daemon does (warm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+    @Param({"fixtures", "10000", "100000"})
+    public String classpath;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private String rootClassName;
+    private List<String> jarPaths;
+    private DependencyChecker warmChecker;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkClasspath benchmarkClasspath = BenchmarkClasspath.of(classpath);
+        rootClassName = benchmarkClasspath.rootClassName();
+        jarPaths = benchmarkClasspath.jarPaths();
+        warmChecker = new DependencyChecker();
+        warmChecker.setParallelism(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        warmChecker.close();
+    }
+
+    @Benchmark
+    public Optional<String> cold() throws IOException {
+        try (DependencyChecker checker = new DependencyChecker()) {
+            checker.setParallelism(parallelism);
+            return checker.checkDependencies(rootClassName, jarPaths);
+        }
+    }
+
+    @Benchmark
+    public Optional<String> warm() throws IOException {
+        return warmChecker.checkDependencies(rootClassName, jarPaths);
+    }
+}
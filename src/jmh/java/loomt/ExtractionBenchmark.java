@@ -0,0 +1,63 @@
+package loomt;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts the referenced classes of every class of a classpath from class file bytes loaded up front,
+ * so only parsing is measured. The descriptor cache is either kept warm across invocations, as in a long-lived
+ * checker, or started empty for every pass over the classpath
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractionBenchmark {
+    @Param({"fixtures", "10000"})
+    public String classpath;
+
+    @Param({"PRECISE", "FAST"})
+    public AnalysisMode mode;
+
+    @Param({"true", "false"})
+    public boolean warmDescriptors;
+
+    private List<byte[]> classFiles;
+    private DescriptorCache descriptors = new DescriptorCache();
+
+    @Setup
+    public void setUp() throws IOException {
+        classFiles = new ArrayList<>();
+        List<File> files = BenchmarkClasspath.of(classpath).jarPaths().stream().map(File::new).toList();
+        try (ClasspathIndex index = new ClasspathIndex(files)) {
+            for (ClassSource source : index.getSources()) {
+                for (Map.Entry<String, String> entry : source.getClasses().entrySet()) {
+                    try (InputStream in = source.open(entry.getValue())) {
+                        classFiles.add(in.readAllBytes());
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int extract() {
+        int references = 0;
+        if (!warmDescriptors) descriptors = new DescriptorCache();
+        for (byte[] classFile : classFiles) {
+            references += DependencyChecker.readReferencedClasses(new ClassReader(classFile), mode, descriptors)
+                    .size();
+        }
+        return references;
+    }
+}
@@ -0,0 +1,36 @@
+package loomt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens every JAR file of a classpath and indexes its class entries
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexingBenchmark {
+    @Param({"fixtures", "10000", "100000"})
+    public String classpath;
+
+    private List<File> files;
+
+    @Setup
+    public void setUp() throws IOException {
+        files = BenchmarkClasspath.of(classpath).jarPaths().stream().map(File::new).toList();
+    }
+
+    @Benchmark
+    public int index() throws IOException {
+        try (ClasspathIndex index = new ClasspathIndex(files)) {
+            return index.size();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package loomt;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans field descriptors and generic signatures for class names
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SignatureBenchmark {
+    private final String[] signatures = {
+            "Ljava/lang/String;",
+            "[[I",
+            "[Lcom/name/Class;",
+            "Ljava/util/List<Ljava/lang/String;>;",
+            "Ljava/util/Map<Ljava/lang/String;Ljava/util/List<+Lcom/name/Class;>;>;",
+            "Ljava/util/function/Function<-TT;+Ljava/util/Optional<[Lcom/name/Class;>;>;",
+            "Lcom/name/Outer<Ljava/lang/String;>.Inner<Ljava/lang/Integer;>;",
+    };
+
+    private final Set<String> classes = new HashSet<>();
+    private final SignatureScanner scanner = new SignatureScanner(classes);
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for (String signature : signatures) {
+            scanner.addSignature(signature);
+        }
+        blackhole.consume(classes.size());
+        classes.clear();
+    }
+}
@@ -0,0 +1,17 @@
+package loomt;
+
+/**
+ * How referenced classes are extracted from class files
+ */
+public enum AnalysisMode {
+    /**
+     * Walks declarations and method instructions, reporting the classes named by the code and its signatures
+     */
+    PRECISE,
+    /**
+     * Reads class references straight from the constant pool and skips method bodies entirely.
+     * Much faster, but may report some classes the precise analysis would not, e.g. those of unused constants,
+     * and misses type arguments only recorded in the local variable debug tables
+     */
+    FAST
+}
@@ -0,0 +1,70 @@
+package loomt;
+
+import java.util.Locale;
+
+/**
+ * Timings and counters of a single call of a {@link DependencyChecker}.
+ * Index and total times are wall-clock times of the calling thread. Read, parse and cache times are summed over all
+ * threads, so with parallelism they may exceed the total. In a sequential check the remainder of the total is spent
+ * on graph bookkeeping: class lookups, the visited set and the frontier queue.
+ * @param rootCount number of root classes checked
+ * @param totalNanos wall-clock time of the whole call
+ * @param indexNanos time spent opening classpath entries and building the classpath index
+ * @param readNanos time spent reading class file bytes
+ * @param parseNanos time spent extracting references from class files
+ * @param cacheNanos time spent loading and storing reference graphs in the persistent cache
+ * @param sourcesOpened classpath entries opened by the call, entries kept from previous calls are not counted
+ * @param classesVisited classes reached by the traversal, including missing ones
+ * @param classesParsed class files parsed by the call
+ * @param bytesRead class file bytes read by the call
+ * @param referenceHits lookups answered by the in-memory reference cache
+ * @param referenceMisses lookups the in-memory reference cache could not answer
+ * @param graphCacheHits classpath entries whose reference graph was loaded from the persistent cache
+ * @param graphCacheMisses classpath entries analyzed as a whole to store their graph in the persistent cache
+ * @param frontierPeak largest number of reached classes waiting to be analyzed at once
+ */
+public record CheckMetrics(int rootCount, long totalNanos, long indexNanos, long readNanos, long parseNanos,
+                           long cacheNanos, int sourcesOpened, int classesVisited, long classesParsed,
+                           long bytesRead, long referenceHits, long referenceMisses, long graphCacheHits,
+                           long graphCacheMisses, int frontierPeak) {
+    /**
+     * @return share of the in-memory reference cache lookups that were hits, 0 without lookups
+     */
+    public double referenceHitRate() {
+        long lookups = referenceHits + referenceMisses;
+        return lookups == 0 ? 0 : (double) referenceHits / lookups;
+    }
+
+    /**
+     * @return human-readable multi-line summary
+     */
+    public String toSummary() {
+        return String.format(Locale.ROOT, """
+                        Checked %d root(s) in %.1f ms
+                          index     %10.1f ms  %d classpath entries opened
+                          read      %10.1f ms  %d bytes
+                          parse     %10.1f ms  %d classes parsed, %d classes visited, frontier peak %d
+                          cache     %10.1f ms  %d graph hits, %d graph misses
+                          references %d hits, %d misses (%.1f %% hit rate)""",
+                rootCount, millis(totalNanos), millis(indexNanos), sourcesOpened, millis(readNanos), bytesRead,
+                millis(parseNanos), classesParsed, classesVisited, frontierPeak, millis(cacheNanos),
+                graphCacheHits, graphCacheMisses, referenceHits, referenceMisses, referenceHitRate() * 100);
+    }
+
+    /**
+     * @return single-line JSON object with a member for every component
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"rootCount\":%d,\"totalNanos\":%d,\"indexNanos\":%d,\"readNanos\":%d,"
+                        + "\"parseNanos\":%d,\"cacheNanos\":%d,\"sourcesOpened\":%d,\"classesVisited\":%d,"
+                        + "\"classesParsed\":%d,\"bytesRead\":%d,\"referenceHits\":%d,\"referenceMisses\":%d,"
+                        + "\"graphCacheHits\":%d,\"graphCacheMisses\":%d,\"frontierPeak\":%d}",
+                rootCount, totalNanos, indexNanos, readNanos, parseNanos, cacheNanos, sourcesOpened, classesVisited,
+                classesParsed, bytesRead, referenceHits, referenceMisses, graphCacheHits, graphCacheMisses,
+                frontierPeak);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,405 @@
+package loomt;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Breadth-first traversal of the class reference graph on interned class ids.
+ * Visited classes are tracked in a bit set and the frontier is an int queue,
+ * so the bookkeeping cost per class is a few ints no matter how large the classpath is.
+ */
+class ClassGraphTraversal {
+    private final ReferenceSource source;
+    private final ClassNameTable names = new ClassNameTable();
+    private final BitSet visited = new BitSet();
+    // id of the class through which each visited class was first reached, -1 for the root
+    private int[] referencedBy = new int[64];
+
+    // FIFO queue of class ids still to be analyzed
+    private int[] queue = new int[64];
+    private int head;
+    private int tail;
+    // largest number of classes waiting in the queue at once
+    private int frontierPeak;
+
+    /**
+     * Receives every class reached by a traversal as soon as it is analyzed
+     */
+    @FunctionalInterface
+    interface ReferenceListener {
+        /**
+         * @param className name of the class
+         * @param references classes referenced by the class or null if it is missing from the classpath
+         * @throws IOException if an I/O error has occurred while handling the class
+         */
+        void classAnalyzed(String className, Set<String> references) throws IOException;
+    }
+
+    /**
+     * @param source source of referenced classes
+     */
+    ClassGraphTraversal(ReferenceSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Traverses the class reference graph and collects the classes missing from the classpath
+     * @param mainClassName name of main class
+     * @param stopAtFirst whether to stop the traversal at the first missing class
+     * @return missing classes in the order they were found
+     * @throws IOException if an I/O error has occurred while reading classes
+     */
+    List<MissingClass> findMissingClasses(String mainClassName, boolean stopAtFirst) throws IOException {
+        List<MissingClass> missingClasses = new ArrayList<>();
+        visit(names.intern(mainClassName), -1);
+
+        while (head < tail) {
+            int id = queue[head++];
+            // analyze the class and collect all referenced classes
+            Set<String> classes = source.referencesOf(names.name(id));
+            if (classes == null) {
+                int referrer = referencedBy[id];
+                missingClasses.add(new MissingClass(names.name(id), referrer < 0 ? null : names.name(referrer)));
+                if (stopAtFirst) break;
+                continue;
+            }
+            for (String referenced : classes) {
+                int referencedId = names.intern(referenced);
+                if (!visited.get(referencedId)) {
+                    visit(referencedId, id);
+                }
+            }
+        }
+
+        return missingClasses;
+    }
+
+    /**
+     * Finds the missing classes of several roots with a single traversal of the shared classpath.
+     * The reached graph is kept as int adjacency arrays and condensed into strongly connected components,
+     * whose missing classes are computed once in reverse topological order and shared by every component
+     * reaching them, so overlapping subgraphs are walked only once however many roots contain them.
+     * @param rootClassNames names of the root classes
+     * @return missing classes of each root in the order of the roots, each list ordered by discovery
+     * @throws IOException if an I/O error has occurred while reading classes
+     */
+    Map<String, List<MissingClass>> findMissingClassesPerRoot(Collection<String> rootClassNames)
+            throws IOException {
+        BitSet missing = new BitSet();
+        int[][] edges = traverseKeepingEdges(rootClassNames, missing);
+
+        ComponentCondensation condensation = new ComponentCondensation(edges, missing, names.size());
+        Map<String, List<MissingClass>> result = new LinkedHashMap<>();
+        for (String rootClassName : rootClassNames) {
+            int root = names.find(rootClassName);
+            List<MissingClass> missingClasses = new ArrayList<>();
+            if (missing.get(root)) {
+                missingClasses.add(new MissingClass(rootClassName, null));
+            } else {
+                MissingSet missingSet = condensation.missingFrom(root);
+                for (int i = 0; i < missingSet.classes().length; i++) {
+                    missingClasses.add(new MissingClass(names.name(missingSet.classes()[i]),
+                            names.name(missingSet.referrers()[i])));
+                }
+            }
+            result.put(rootClassName, missingClasses);
+        }
+        return result;
+    }
+
+    /**
+     * Traverses everything reachable from the roots, handing every class and its references to a listener
+     * instead of keeping them, so only the visited set grows with the graph
+     * @param rootClassNames names of the root classes
+     * @param listener receiver of the analyzed classes in traversal order
+     * @throws IOException if an I/O error has occurred while reading classes or in the listener
+     */
+    void traverse(Collection<String> rootClassNames, ReferenceListener listener) throws IOException {
+        for (String rootClassName : rootClassNames) {
+            int id = names.intern(rootClassName);
+            if (!visited.get(id)) visit(id, -1);
+        }
+        while (head < tail) {
+            int id = queue[head++];
+            Set<String> classes = source.referencesOf(names.name(id));
+            listener.classAnalyzed(names.name(id), classes);
+            if (classes == null) continue;
+            for (String referenced : classes) {
+                int referencedId = names.intern(referenced);
+                if (!visited.get(referencedId)) {
+                    visit(referencedId, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Traverses the whole graph reachable from the roots and keeps it for reverse queries.
+     * The traversal is breadth-first from all roots at once, so the first referrer of every class lies on a shortest
+     * reference chain from the nearest root
+     * @param rootClassNames names of the root classes
+     * @param sourceIndexOf position of the classpath entry defining a found class
+     * @param jarPaths paths of the classpath entries
+     * @return reference graph of all reachable classes
+     * @throws IOException if an I/O error has occurred while reading classes
+     */
+    ReferenceGraph buildReferenceGraph(Collection<String> rootClassNames, ToIntFunction<String> sourceIndexOf,
+                                       List<String> jarPaths) throws IOException {
+        BitSet missing = new BitSet();
+        int[][] edges = traverseKeepingEdges(rootClassNames, missing);
+        int[] sources = new int[names.size()];
+        for (int id = 0; id < sources.length; id++) {
+            sources[id] = missing.get(id) ? -1 : sourceIndexOf.applyAsInt(names.name(id));
+        }
+        return new ReferenceGraph(names, Arrays.copyOf(referencedBy, names.size()), edges, sources, jarPaths);
+    }
+
+    /**
+     * Traverses everything reachable from the roots, keeping the references of every class
+     * @param rootClassNames names of the root classes
+     * @param missing set to add the ids of the missing classes to
+     * @return ids of the classes referenced by each class id, null for missing classes
+     * @throws IOException if an I/O error has occurred while reading classes
+     */
+    private int[][] traverseKeepingEdges(Collection<String> rootClassNames, BitSet missing) throws IOException {
+        int[][] edges = new int[64][];
+        for (String rootClassName : rootClassNames) {
+            int id = names.intern(rootClassName);
+            if (!visited.get(id)) visit(id, -1);
+        }
+        while (head < tail) {
+            int id = queue[head++];
+            Set<String> classes = source.referencesOf(names.name(id));
+            if (classes == null) {
+                missing.set(id);
+                continue;
+            }
+            int[] referenced = new int[classes.size()];
+            int count = 0;
+            for (String className : classes) {
+                int referencedId = names.intern(className);
+                if (!visited.get(referencedId)) {
+                    visit(referencedId, id);
+                }
+                referenced[count++] = referencedId;
+            }
+            if (id >= edges.length) {
+                edges = Arrays.copyOf(edges, Math.max(id + 1, edges.length * 2));
+            }
+            edges[id] = referenced;
+        }
+        return edges;
+    }
+
+    /**
+     * Missing classes reachable from a component, sorted by class id
+     * @param classes ids of the missing classes
+     * @param referrers ids of a reachable class referencing each missing class
+     */
+    private record MissingSet(int[] classes, int[] referrers) {
+        static final MissingSet EMPTY = new MissingSet(new int[0], new int[0]);
+    }
+
+    /**
+     * Strongly connected components of the reached graph with the missing classes reachable from each,
+     * computed by an iterative Tarjan's algorithm. Tarjan completes a component only after all components
+     * it reaches, so their missing sets are always ready to be merged.
+     */
+    private static class ComponentCondensation {
+        private final int[][] edges;
+        private final BitSet missing;
+        private final int[] index;
+        private final int[] lowLink;
+        private final int[] component;
+        private final List<MissingSet> missingSets = new ArrayList<>();
+
+        // scratch space for merging missing sets: referrer of each missing class or -1
+        private final int[] scratchReferrers;
+        private final int[] touched;
+        // Tarjan stack and explicit call stack of nodes with the position of their next edge to explore,
+        // all empty again whenever a condensation finishes, so every root reuses them
+        private final int[] stack;
+        private final BitSet onStack;
+        private final int[] callNodes;
+        private final int[] callEdges;
+
+        ComponentCondensation(int[][] edges, BitSet missing, int nodeCount) {
+            this.edges = edges;
+            this.missing = missing;
+            index = new int[nodeCount];
+            lowLink = new int[nodeCount];
+            component = new int[nodeCount];
+            Arrays.fill(index, -1);
+            Arrays.fill(component, -1);
+            scratchReferrers = new int[nodeCount];
+            Arrays.fill(scratchReferrers, -1);
+            touched = new int[nodeCount];
+            stack = new int[nodeCount];
+            onStack = new BitSet(nodeCount);
+            callNodes = new int[nodeCount];
+            callEdges = new int[nodeCount];
+        }
+
+        /**
+         * @param root id of a class that is on the classpath
+         * @return missing classes reachable from the class
+         */
+        MissingSet missingFrom(int root) {
+            if (component[root] < 0) {
+                condense(root);
+            }
+            return missingSets.get(component[root]);
+        }
+
+        private int[] successors(int node) {
+            return node < edges.length && edges[node] != null ? edges[node] : MissingSet.EMPTY.classes();
+        }
+
+        private void condense(int root) {
+            int counter = 0;
+            int stackSize = 0;
+            int callSize = 0;
+
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack.set(root);
+            callNodes[callSize] = root;
+            callEdges[callSize++] = 0;
+            while (callSize > 0) {
+                int node = callNodes[callSize - 1];
+                int[] successors = successors(node);
+                if (callEdges[callSize - 1] < successors.length) {
+                    int next = successors[callEdges[callSize - 1]++];
+                    if (index[next] < 0) {
+                        index[next] = lowLink[next] = counter++;
+                        stack[stackSize++] = next;
+                        onStack.set(next);
+                        callNodes[callSize] = next;
+                        callEdges[callSize++] = 0;
+                    } else if (onStack.get(next)) {
+                        lowLink[node] = Math.min(lowLink[node], index[next]);
+                    }
+                    continue;
+                }
+                callSize--;
+                if (callSize > 0) {
+                    int parent = callNodes[callSize - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if (lowLink[node] == index[node]) {
+                    int start = stackSize;
+                    do {
+                        start--;
+                        onStack.clear(stack[start]);
+                        component[stack[start]] = missingSets.size();
+                    } while (stack[start] != node);
+                    missingSets.add(mergeMissingSets(stack, start, stackSize));
+                    stackSize = start;
+                }
+            }
+        }
+
+        /**
+         * @param stack Tarjan stack holding the members of the new component
+         * @param start index of the first member
+         * @param end index after the last member
+         * @return missing classes reachable from the component
+         */
+        private MissingSet mergeMissingSets(int[] stack, int start, int end) {
+            int touchedCount = 0;
+            MissingSet single = null;
+            int childSets = 0;
+            for (int i = start; i < end; i++) {
+                int node = stack[i];
+                for (int next : successors(node)) {
+                    if (missing.get(next)) {
+                        if (scratchReferrers[next] < 0) {
+                            scratchReferrers[next] = node;
+                            touched[touchedCount++] = next;
+                        }
+                        childSets = 2; // direct references always need a new set
+                        continue;
+                    }
+                    int nextComponent = component[next];
+                    if (nextComponent == component[node]) continue;
+                    MissingSet child = missingSets.get(nextComponent);
+                    if (child.classes().length == 0) continue;
+                    if (child != single) {
+                        childSets++;
+                        single = child;
+                    }
+                    for (int j = 0; j < child.classes().length; j++) {
+                        int missingClass = child.classes()[j];
+                        if (scratchReferrers[missingClass] < 0) {
+                            scratchReferrers[missingClass] = child.referrers()[j];
+                            touched[touchedCount++] = missingClass;
+                        }
+                    }
+                }
+            }
+            MissingSet result;
+            if (touchedCount == 0) {
+                result = MissingSet.EMPTY;
+            } else if (childSets == 1) {
+                // nothing new, share the set of the only child component
+                result = single;
+            } else {
+                int[] classes = Arrays.copyOf(touched, touchedCount);
+                Arrays.sort(classes);
+                int[] referrers = new int[touchedCount];
+                for (int i = 0; i < touchedCount; i++) {
+                    referrers[i] = scratchReferrers[classes[i]];
+                }
+                result = new MissingSet(classes, referrers);
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                scratchReferrers[touched[i]] = -1;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Marks a class as visited and enqueues it
+     * @param id class id
+     * @param referrer id of the class referencing it or -1
+     */
+    private void visit(int id, int referrer) {
+        visited.set(id);
+        if (id >= referencedBy.length) {
+            referencedBy = Arrays.copyOf(referencedBy, Math.max(id + 1, referencedBy.length * 2));
+        }
+        referencedBy[id] = referrer;
+        if (tail == queue.length) {
+            queue = Arrays.copyOf(queue, queue.length * 2);
+        }
+        queue[tail++] = id;
+        frontierPeak = Math.max(frontierPeak, tail - head);
+    }
+
+    /**
+     * @return names of all classes reached by the traversal in the order they were reached, including missing ones
+     */
+    List<String> getReachedClasses() {
+        List<String> reached = new ArrayList<>(tail);
+        for (int i = 0; i < tail; i++) {
+            reached.add(names.name(queue[i]));
+        }
+        return reached;
+    }
+
+    /**
+     * @return number of classes reached by the traversal, including missing ones
+     */
+    int getVisitedCount() {
+        return tail;
+    }
+
+    /**
+     * @return largest number of reached classes waiting to be analyzed at once
+     */
+    int getFrontierPeak() {
+        return frontierPeak;
+    }
+}
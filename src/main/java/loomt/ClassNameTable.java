@@ -0,0 +1,88 @@
+package loomt;
+
+import java.util.Arrays;
+
+/**
+ * Interns class names into dense integer ids, so graph algorithms can work on ints, arrays and bit sets
+ * instead of strings and boxed collections. Ids are assigned in interning order starting at 0.
+ * Lookups use an open-addressing hash table with linear probing.
+ */
+final class ClassNameTable {
+    private String[] names = new String[64];
+    private int size;
+
+    // hash table slots, keys[i] == null marks an empty slot
+    private String[] keys = new String[128];
+    private int[] ids = new int[128];
+
+    /**
+     * @param name class name
+     * @return id of the class, assigning a new one if the name was not interned yet
+     */
+    int intern(String name) {
+        int slot = slot(name);
+        if (keys[slot] != null) {
+            return ids[slot];
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = name;
+        keys[slot] = name;
+        ids[slot] = size;
+        // keep the load factor at most 1/2
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @param name class name
+     * @return id of the class or -1 if the name was not interned
+     */
+    int find(String name) {
+        int slot = slot(name);
+        return keys[slot] == null ? -1 : ids[slot];
+    }
+
+    /**
+     * @param id class id
+     * @return name of the class
+     */
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return number of interned names
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param name class name
+     * @return slot holding the name or the empty slot where it belongs
+     */
+    private int slot(String name) {
+        int mask = keys.length - 1;
+        // spread the hash so names differing only in the high bits do not collide
+        int hash = name.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        keys = new String[keys.length * 2];
+        ids = new int[keys.length];
+        for (int id = 0; id < size; id++) {
+            int slot = slot(names[id]);
+            keys[slot] = names[id];
+            ids[slot] = id;
+        }
+    }
+}
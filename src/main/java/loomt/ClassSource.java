@@ -0,0 +1,175 @@
+package loomt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Classpath entry providing class files: a JAR file, a JAR nested in a fat JAR, a jmod file or a class directory.
+ * Besides its class index every source remembers the state its content had when it was opened,
+ * so a long-lived {@link DependencyChecker} can tell when it has to be reopened.
+ */
+abstract class ClassSource implements Closeable {
+    private volatile MappedDependencyGraph cachedGraph;
+
+    /**
+     * Receives the class files of a source
+     */
+    @FunctionalInterface
+    interface ClassFileConsumer {
+        /**
+         * @param internalName internal name of the class, e.g. {@code com/name/Class}
+         * @param in stream of the class file bytes, closed by the caller
+         * @throws IOException if an I/O error has occurred
+         */
+        void accept(String internalName, InputStream in) throws IOException;
+    }
+
+    /**
+     * Opens a classpath entry, choosing the source type from the file
+     * @param file JAR file, jmod file or class directory
+     * @return source of the classes of the entry
+     * @throws IOException if an I/O error has occurred while indexing the entry
+     */
+    static ClassSource open(File file) throws IOException {
+        if (file.isDirectory()) {
+            return new DirectoryClassSource(file);
+        }
+        return new JarClassSource(file);
+    }
+
+    /**
+     * @param entryName path of a file relative to the root of a JAR file or directory, separated by {@code /}
+     * @return internal name of the class stored in the file or null if the file is not a class file
+     */
+    static String internalName(String entryName) {
+        if (entryName.endsWith("/") || !entryName.endsWith(".class") || entryName.startsWith("META-INF/"))
+            return null;
+        return entryName.substring(0, entryName.length() - ".class".length());
+    }
+
+    /**
+     * @return identity of the content of the source, changes whenever the content changes on disk
+     */
+    abstract String getIdentity();
+
+    /**
+     * @return true iff the source changed or disappeared since it was indexed
+     */
+    abstract boolean isStale();
+
+    /**
+     * @return internal names of all classes of the source mapped to the entry names of their class files
+     */
+    abstract Map<String, String> getClasses();
+
+    /**
+     * @param entryName entry name of a class file
+     * @return stream of the class file bytes
+     * @throws IOException if an I/O error has occurred
+     */
+    abstract InputStream open(String entryName) throws IOException;
+
+    /**
+     * @return entry name of this source in the fat JAR containing it, null if the source is a classpath entry itself
+     */
+    String getOuterEntryName() {
+        return null;
+    }
+
+    /**
+     * Computes checksums to compare class files of different sources without comparing their bytes
+     * @param entryNames entry names of class files
+     * @return checksum of each class file, see {@link #checksum(long, long)}
+     * @throws IOException if an I/O error has occurred
+     */
+    Map<String, Long> getChecksums(Collection<String> entryNames) throws IOException {
+        Map<String, Long> checksums = new HashMap<>();
+        for (String entryName : entryNames) {
+            try (InputStream in = open(entryName)) {
+                checksums.put(entryName, checksum(in));
+            }
+        }
+        return checksums;
+    }
+
+    /**
+     * @param crc CRC-32 of a class file
+     * @param size size of the class file in bytes
+     * @return checksum of the class file, CRC-32 in the low and size in the high 32 bits
+     */
+    static long checksum(long crc, long size) {
+        return size << 32 | (crc & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param in stream of a class file, read to its end
+     * @return checksum of the class file, see {@link #checksum(long, long)}
+     * @throws IOException if an I/O error has occurred
+     */
+    static long checksum(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            crc.update(buffer, 0, read);
+            size += read;
+        }
+        return checksum(crc.getValue(), size);
+    }
+
+    /**
+     * @return true iff a single class file can be opened without reading the others,
+     * otherwise classes should be read in bulk with {@link #forEachClass}
+     */
+    boolean isRandomAccess() {
+        return true;
+    }
+
+    /**
+     * Reads all class files of the source
+     * @param consumer receiver of the class files
+     * @throws IOException if an I/O error has occurred
+     */
+    void forEachClass(ClassFileConsumer consumer) throws IOException {
+        for (Map.Entry<String, String> entry : getClasses().entrySet()) {
+            try (InputStream in = open(entry.getValue())) {
+                consumer.accept(entry.getKey(), in);
+            }
+        }
+    }
+
+    /**
+     * @return sources nested in this one, e.g. the libraries of a fat JAR, in classpath order
+     */
+    List<ClassSource> getNestedSources() {
+        return List.of();
+    }
+
+    /**
+     * @return reference graph of the whole source loaded from the persistent cache or null
+     */
+    MappedDependencyGraph getCachedGraph() {
+        return cachedGraph;
+    }
+
+    /**
+     * @param cachedGraph reference graph of the whole source loaded from the persistent cache
+     */
+    void setCachedGraph(MappedDependencyGraph cachedGraph) {
+        this.cachedGraph = cachedGraph;
+    }
+
+    /**
+     * Forgets the cached graphs of this source and its nested sources, e.g. when the analysis settings change
+     */
+    void clearCachedGraph() {
+        cachedGraph = null;
+        for (ClassSource nested : getNestedSources()) {
+            nested.clearCachedGraph();
+        }
+    }
+}
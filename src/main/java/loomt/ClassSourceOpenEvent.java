@@ -0,0 +1,18 @@
+package loomt;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event recorded whenever a {@link DependencyChecker} opens and indexes a classpath entry
+ */
+@Name("loomt.ClassSourceOpen")
+@Label("Classpath Entry Open")
+@Category("LoomT")
+@Description("Opening and indexing of a JAR file, jmod file or class directory")
+class ClassSourceOpenEvent extends Event {
+    @Label("Path")
+    String path;
+
+    @Label("Classes")
+    int classCount;
+}
@@ -0,0 +1,193 @@
+package loomt;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Index of all classes on a classpath, built from class sources that are each opened exactly once.
+ * Maps internal class names (e.g. {@code com/name/Class}) to the source and entry that own them,
+ * so looking a class up is a single hash probe. The first source on the classpath defining a class wins,
+ * the nested sources of a fat JAR follow its own classes.
+ */
+class ClasspathIndex implements Closeable {
+    private final List<ClassSource> sources;
+    private final boolean ownsSources;
+    private final Map<String, ClassLocation> classes = new HashMap<>();
+    // later definitions of classes defined by more than one source, in classpath order
+    private final Map<String, List<ClassLocation>> shadowedClasses = new HashMap<>();
+
+    /**
+     * Location of a class file inside a class source
+     * @param source source owning the class
+     * @param entry entry name of the class file
+     * @param sourceIndex position of the classpath entry containing the source in {@link #getSources()},
+     * the fat JAR for a nested source
+     */
+    record ClassLocation(ClassSource source, String entry, int sourceIndex) {}
+
+    /**
+     * Opens all classpath entries and indexes their class files, the entries are closed with the index
+     * @param files JAR files, jmod files or class directories in classpath order
+     * @throws IOException if an I/O error has occurred while reading the classpath entries
+     */
+    ClasspathIndex(List<File> files) throws IOException {
+        this.sources = new ArrayList<>();
+        this.ownsSources = true;
+        try {
+            for (File file : files) {
+                sources.add(ClassSource.open(file));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        indexClasses();
+    }
+
+    /**
+     * Indexes already opened class sources
+     * @param sources class sources in classpath order
+     * @param ownsSources whether the sources are closed with the index
+     */
+    ClasspathIndex(List<ClassSource> sources, boolean ownsSources) {
+        this.sources = new ArrayList<>(sources);
+        this.ownsSources = ownsSources;
+        indexClasses();
+    }
+
+    private void indexClasses() {
+        for (int i = 0; i < sources.size(); i++) {
+            indexClasses(sources.get(i), i);
+        }
+    }
+
+    private void indexClasses(ClassSource source, int sourceIndex) {
+        for (Map.Entry<String, String> entry : source.getClasses().entrySet()) {
+            // earlier sources shadow later ones
+            ClassLocation location = new ClassLocation(source, entry.getValue(), sourceIndex);
+            ClassLocation winner = classes.putIfAbsent(entry.getKey(), location);
+            if (winner != null && winner.source() != source) {
+                shadowedClasses.computeIfAbsent(entry.getKey(), name -> new ArrayList<>(1)).add(location);
+            }
+        }
+        for (ClassSource nested : source.getNestedSources()) {
+            indexClasses(nested, sourceIndex);
+        }
+    }
+
+    /**
+     * Replaces the source of one classpath entry without indexing the other entries again. Only the classes of the
+     * old and the new source are looked at: all definitions of such a class are the winner and its shadowed
+     * locations, so the definitions of the entry are swapped among them and the first one in classpath order wins
+     * @param sourceIndex position of the classpath entry
+     * @param replacement new source of the entry, the old one is not closed
+     * @return internal names of the classes defined by the old or the new source
+     */
+    Set<String> replaceSource(int sourceIndex, ClassSource replacement) {
+        ClassSource replaced = sources.set(sourceIndex, replacement);
+        Set<String> classNames = new HashSet<>();
+        collectClassNames(replaced, classNames);
+        Map<String, List<ClassLocation>> added = new HashMap<>();
+        collectLocations(replacement, sourceIndex, added);
+        classNames.addAll(added.keySet());
+        for (String className : classNames) {
+            List<ClassLocation> definitions = new ArrayList<>();
+            ClassLocation winner = classes.remove(className);
+            if (winner != null) definitions.add(winner);
+            List<ClassLocation> shadowed = shadowedClasses.remove(className);
+            if (shadowed != null) definitions.addAll(shadowed);
+            definitions.removeIf(location -> location.sourceIndex() == sourceIndex);
+            definitions.addAll(added.getOrDefault(className, List.of()));
+            // stable, so the order of the nested sources of a fat JAR is kept
+            definitions.sort(Comparator.comparingInt(ClassLocation::sourceIndex));
+            if (definitions.isEmpty()) continue;
+            classes.put(className, definitions.get(0));
+            List<ClassLocation> hidden = new ArrayList<>(1);
+            for (ClassLocation location : definitions.subList(1, definitions.size())) {
+                if (location.source() != definitions.get(0).source()) hidden.add(location);
+            }
+            if (!hidden.isEmpty()) shadowedClasses.put(className, hidden);
+        }
+        return classNames;
+    }
+
+    /**
+     * @param source class source
+     * @param classNames receives the internal names of the classes of the source and its nested sources
+     */
+    static void collectClassNames(ClassSource source, Set<String> classNames) {
+        classNames.addAll(source.getClasses().keySet());
+        for (ClassSource nested : source.getNestedSources()) {
+            collectClassNames(nested, classNames);
+        }
+    }
+
+    private static void collectLocations(ClassSource source, int sourceIndex,
+                                         Map<String, List<ClassLocation>> locations) {
+        for (Map.Entry<String, String> entry : source.getClasses().entrySet()) {
+            locations.computeIfAbsent(entry.getKey(), name -> new ArrayList<>(1))
+                    .add(new ClassLocation(source, entry.getValue(), sourceIndex));
+        }
+        for (ClassSource nested : source.getNestedSources()) {
+            collectLocations(nested, sourceIndex, locations);
+        }
+    }
+
+    /**
+     * @return indexed class sources in classpath order, without their nested sources
+     */
+    List<ClassSource> getSources() {
+        return sources;
+    }
+
+    /**
+     * @param className class name, e.g. {@code com.name.Class}
+     * @return location of the class or null if no source defines it
+     */
+    ClassLocation find(String className) {
+        return classes.get(className.replace('.', '/'));
+    }
+
+    /**
+     * @return internal names of the classes defined by more than one source, mapped to the locations hidden by the
+     * first definition, in classpath order
+     */
+    Map<String, List<ClassLocation>> getShadowedClasses() {
+        return shadowedClasses;
+    }
+
+    /**
+     * @param location location of the class
+     * @return stream of the class file bytes
+     * @throws IOException if an I/O error has occurred
+     */
+    InputStream open(ClassLocation location) throws IOException {
+        return location.source().open(location.entry());
+    }
+
+    /**
+     * @return number of indexed classes
+     */
+    int size() {
+        return classes.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!ownsSources) return;
+        IOException exception = null;
+        for (ClassSource source : sources) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                if (exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+        sources.clear();
+        if (exception != null) throw exception;
+    }
+}
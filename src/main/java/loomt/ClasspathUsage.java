@@ -0,0 +1,17 @@
+package loomt;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Which JAR files of a classpath the classes reachable from root classes are loaded from.
+ * Every reachable class is attributed to the first classpath entry defining it, as a class loader would resolve it,
+ * so removing the unused JAR files leaves the resolution of all reachable classes unchanged.
+ * @param requiredJars JAR paths defining at least one reachable class, in classpath order
+ * @param unusedJars JAR paths contributing no reachable class, in classpath order
+ * @param classSources JAR path defining each reachable class that was found, in the order the classes were reached
+ * @param missingClasses all missing classes of each root, in the order of the roots
+ */
+public record ClasspathUsage(List<String> requiredJars, List<String> unusedJars, Map<String, String> classSources,
+                             Map<String, List<MissingClass>> missingClasses) {
+}
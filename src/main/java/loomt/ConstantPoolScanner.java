@@ -0,0 +1,49 @@
+package loomt;
+
+import org.objectweb.asm.ClassReader;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Reads class references directly from the constant pool of a class file, without parsing method bodies.
+ * Every class used by an instruction (NEW, CHECKCAST, INVOKE*, field accesses, ...) is stored there as
+ * a CONSTANT_Class entry or inside the descriptor of a NameAndType or MethodType entry.
+ */
+final class ConstantPoolScanner {
+    // constant pool tags, see JVMS 4.4
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private ConstantPoolScanner() {
+    }
+
+    /**
+     * @param reader reader of the class file to scan
+     * @param classes set to add the referenced class names to
+     * @param descriptors cache of the classes named by descriptors
+     */
+    static void scan(ClassReader reader, Set<String> classes, DescriptorCache descriptors) {
+        char[] buffer = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+            // the second slot of long and double constants has no entry
+            if (offset == 0) continue;
+            switch (reader.readByte(offset - 1)) {
+                case CONSTANT_CLASS -> {
+                    String internalName = reader.readUTF8(offset, buffer);
+                    // array classes are named by their descriptor
+                    if (internalName.startsWith("[")) Collections.addAll(classes, descriptors.classesOf(internalName));
+                    else classes.add(descriptors.classNameOf(internalName));
+                }
+                case CONSTANT_NAME_AND_TYPE ->
+                        Collections.addAll(classes, descriptors.classesOf(reader.readUTF8(offset + 2, buffer)));
+                case CONSTANT_METHOD_TYPE ->
+                        Collections.addAll(classes, descriptors.classesOf(reader.readUTF8(offset, buffer)));
+                default -> {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package loomt;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event recorded for every call of a {@link DependencyChecker}, carrying its {@link CheckMetrics}
+ */
+@Name("loomt.DependencyCheck")
+@Label("Dependency Check")
+@Category("LoomT")
+@Description("Dependency check of one or more root classes against a classpath")
+class DependencyCheckEvent extends Event {
+    @Label("Roots")
+    int rootCount;
+
+    @Label("Index Time")
+    @Timespan
+    long indexNanos;
+
+    @Label("Read Time")
+    @Description("Time spent reading class files, summed over all threads")
+    @Timespan
+    long readNanos;
+
+    @Label("Parse Time")
+    @Description("Time spent extracting references, summed over all threads")
+    @Timespan
+    long parseNanos;
+
+    @Label("Cache Time")
+    @Description("Time spent loading and storing persistent reference graphs, summed over all threads")
+    @Timespan
+    long cacheNanos;
+
+    @Label("Classpath Entries Opened")
+    int sourcesOpened;
+
+    @Label("Classes Visited")
+    int classesVisited;
+
+    @Label("Classes Parsed")
+    long classesParsed;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Reference Cache Hits")
+    long referenceHits;
+
+    @Label("Reference Cache Misses")
+    long referenceMisses;
+
+    @Label("Graph Cache Hits")
+    long graphCacheHits;
+
+    @Label("Graph Cache Misses")
+    long graphCacheMisses;
+
+    @Label("Frontier Peak")
+    int frontierPeak;
+
+    /**
+     * @param metrics metrics of the call to copy into the event
+     */
+    void set(CheckMetrics metrics) {
+        rootCount = metrics.rootCount();
+        indexNanos = metrics.indexNanos();
+        readNanos = metrics.readNanos();
+        parseNanos = metrics.parseNanos();
+        cacheNanos = metrics.cacheNanos();
+        sourcesOpened = metrics.sourcesOpened();
+        classesVisited = metrics.classesVisited();
+        classesParsed = metrics.classesParsed();
+        bytesRead = metrics.bytesRead();
+        referenceHits = metrics.referenceHits();
+        referenceMisses = metrics.referenceMisses();
+        graphCacheHits = metrics.graphCacheHits();
+        graphCacheMisses = metrics.graphCacheMisses();
+        frontierPeak = metrics.frontierPeak();
+    }
+}
@@ -1,16 +1,119 @@
 package loomt;
 
-import org.objectweb.asm.*;
-import org.objectweb.asm.tree.*;
+import org.objectweb.asm.ClassReader;
+
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.UnaryOperator;
 
-public class DependencyChecker {
+/**
+ * Checks that a classpath contains all classes required to run a main class. Classpath entries may be JAR files,
+ * fat JARs with nested libraries, jmod files or class directories.
+ * Opened entries are kept between calls, an entry is only read again when it changes on disk,
+ * so the checker should be closed when it is no longer needed. Class files are only read when a traversal reaches
+ * them, and their analyzed references are kept in a size-bounded cache shared by all calls.
+ */
+public class DependencyChecker implements Closeable {
+    private int parallelism = 1;
+    private AnalysisMode analysisMode = AnalysisMode.PRECISE;
+    private PlatformClassFilter platformClassFilter = PlatformClassFilter.defaults();
+    private ReferenceCache referenceCache;
+    private ReferenceSetCache referenceSets = new ReferenceSetCache(Runtime.getRuntime().maxMemory() / 8);
+    // classpath entries opened by previous calls by canonical path
+    private final Map<File, ClassSource> openSources = new HashMap<>();
+    // classes named by the descriptors seen so far, shared by all calls and threads
+    private final DescriptorCache descriptors = new DescriptorCache();
+    // timings and counters of the current call
+    private final MetricsRecorder metrics = new MetricsRecorder();
+    private MetricsListener metricsListener;
+    // index of the most recently analyzed classpath
+    private ClasspathIndex classpathIndex;
+    private boolean incremental;
+    // reachability state of the most recently checked classpath in incremental mode
+    private IncrementalState incrementalState;
+
+    /**
+     * Sets the number of threads used to analyze classes,
+     * 1 (the default) traverses the class reference graph sequentially. Otherwise class files are read and analyzed
+     * in a pipeline, the given number of threads parse classes while half as many threads read them
+     * @param parallelism number of parser threads
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets how referenced classes are extracted, {@link AnalysisMode#PRECISE} by default
+     * @param analysisMode analysis mode
+     */
+    public synchronized void setAnalysisMode(AnalysisMode analysisMode) {
+        this.analysisMode = Objects.requireNonNull(analysisMode);
+        clearReferences();
+    }
+
+    /**
+     * Sets which referenced classes belong to the platform and are not looked up on the classpath,
+     * {@link PlatformClassFilter#defaults()} by default
+     * @param platformClassFilter platform class filter
+     */
+    public synchronized void setPlatformClassFilter(PlatformClassFilter platformClassFilter) {
+        this.platformClassFilter = Objects.requireNonNull(platformClassFilter);
+        // only the references kept in memory are filtered, cached graphs stay valid
+        referenceSets.clear();
+        incrementalState = null;
+    }
+
+    /**
+     * Enables a persistent cache of the references of every class in each classpath entry,
+     * so unchanged entries are not parsed again in later runs
+     * @param cacheDirectory directory to keep the cache in or null to disable caching (the default)
+     */
+    public synchronized void setCacheDirectory(Path cacheDirectory) {
+        this.referenceCache = cacheDirectory == null ? null : new ReferenceCache(cacheDirectory);
+        clearReferences();
+    }
+
+    /**
+     * Limits the memory kept by the analyzed references of classes between and during calls,
+     * an eighth of the maximum heap size by default. Least recently used references are evicted first
+     * @param maxBytes estimated heap footprint limit in bytes
+     */
+    public synchronized void setReferenceCacheSize(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Reference cache size must not be negative: " + maxBytes);
+        }
+        this.referenceSets = new ReferenceSetCache(maxBytes);
+    }
+
+    /**
+     * Enables incremental checks: the references of every class reached on the most recently checked classpath and
+     * the missing classes found are kept between calls, beyond the reference cache size. When some classpath entries
+     * changed on disk since, only the reached classes they define are analyzed again, and if none of their
+     * references changed the missing classes of the previous calls are returned without any traversal.
+     * Otherwise traversals run on the kept references and only read the classes reached for the first time
+     * @param incremental whether to keep the reachability state between calls, false by default
+     */
+    public synchronized void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) incrementalState = null;
+    }
+
+    /**
+     * Registers a listener receiving the timings and counters of every completed call.
+     * Every call also records a {@code loomt.DependencyCheck} JFR event with the same metrics
+     * @param metricsListener listener or null to remove it
+     */
+    public synchronized void setMetricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
 
     /**
      * @param mainClassName name of main class
@@ -19,226 +122,629 @@ public class DependencyChecker {
      * @throws IOException if an I/O error has occurred while reading jar files
      */
     public Optional<String> checkDependencies(String mainClassName, List<String> jarPaths) throws IOException {
-        Set<String> referencedClasses = new HashSet<>();
+        return analyze(mainClassName, jarPaths, true).stream().findFirst().map(MissingClass::className);
+    }
+
+    /**
+     * Traverses the whole class reference graph instead of stopping at the first missing class
+     * @param mainClassName name of main class
+     * @param jarPaths paths to jar files
+     * @return all missing classes in the order they were found, empty if all dependencies are satisfied
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    public List<MissingClass> findMissingClasses(String mainClassName, List<String> jarPaths) throws IOException {
+        return analyze(mainClassName, jarPaths, false);
+    }
+
+    /**
+     * Checks many root classes against the same classpath in a single run. The classpath is indexed and every
+     * reachable class analyzed once, and the missing classes of subgraphs shared by several roots are computed once
+     * @param rootClassNames names of the root classes, e.g. main classes and service entry points
+     * @param jarPaths paths to jar files
+     * @return all missing classes of each root, in the order of the roots
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    public synchronized Map<String, List<MissingClass>> findMissingClasses(Collection<String> rootClassNames,
+                                                                        List<String> jarPaths) throws IOException {
+        List<Object> call = List.of("roots", List.copyOf(rootClassNames));
+        return traverse(rootClassNames, jarPaths, traversal -> keepResult(call,
+                () -> traversal.findMissingClassesPerRoot(rootClassNames), result -> {
+                    Map<String, List<MissingClass>> copy = new LinkedHashMap<>();
+                    result.forEach((root, missingClasses) -> copy.put(root, new ArrayList<>(missingClasses)));
+                    return copy;
+                }));
+    }
+
+    /**
+     * Finds the JAR files the root classes actually load classes from, recording which entry defines each reachable
+     * class during the same traversal that finds the missing classes, without analyzing anything twice
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @return required and unused JAR files, the JAR file of every reachable class and the missing classes
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    public synchronized ClasspathUsage findClasspathUsage(Collection<String> rootClassNames, List<String> jarPaths)
+            throws IOException {
+        return traverse(rootClassNames, jarPaths, traversal -> {
+            Map<String, List<MissingClass>> missingClasses = traversal.findMissingClassesPerRoot(rootClassNames);
+            boolean[] used = new boolean[jarPaths.size()];
+            Map<String, String> classSources = new LinkedHashMap<>();
+            for (String className : traversal.getReachedClasses()) {
+                ClasspathIndex.ClassLocation location = classpathIndex.find(className);
+                if (location != null) {
+                    used[location.sourceIndex()] = true;
+                    classSources.put(className, jarPaths.get(location.sourceIndex()));
+                }
+            }
+            List<String> requiredJars = new ArrayList<>();
+            List<String> unusedJars = new ArrayList<>();
+            for (int i = 0; i < jarPaths.size(); i++) {
+                (used[i] ? requiredJars : unusedJars).add(jarPaths.get(i));
+            }
+            return new ClasspathUsage(requiredJars, unusedJars, classSources, missingClasses);
+        });
+    }
+
+    /**
+     * Traverses everything reachable from the root classes and keeps the reference graph with an inverted index,
+     * to find out which classes and JAR files need a class and through which chain a root reaches it
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @return reference graph of all classes reachable from the roots
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    public synchronized ReferenceGraph buildReferenceGraph(Collection<String> rootClassNames, List<String> jarPaths)
+            throws IOException {
+        return traverse(rootClassNames, jarPaths, traversal -> traversal.buildReferenceGraph(rootClassNames,
+                className -> classpathIndex.find(className).sourceIndex(), jarPaths));
+    }
+
+    /**
+     * Writes the reference graph of everything reachable from the root classes while it is traversed, each class
+     * as soon as it is analyzed, so the class level needs no memory for the edges however many there are.
+     * The traversal is always sequential and bypasses the incremental state, the pipeline of a parallel checker and
+     * the state would both keep the references of every reachable class
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @param out writer receiving the graph, better buffered; flushed but not closed
+     * @param format output format
+     * @param level granularity of the nodes: classes, or packages or JAR files with duplicate edges written once
+     * @throws IOException if an I/O error has occurred while reading jar files or writing the graph
+     */
+    public synchronized void exportGraph(Collection<String> rootClassNames, List<String> jarPaths, Writer out,
+                                         GraphFormat format, GraphLevel level) throws IOException {
+        traverse(rootClassNames, jarPaths, true, traversal -> {
+            GraphExporter exporter = new GraphExporter(out, format, level, className -> {
+                ClasspathIndex.ClassLocation location = classpathIndex.find(className);
+                return location == null ? null : jarPaths.get(location.sourceIndex());
+            });
+            exporter.begin();
+            traversal.traverse(rootClassNames, exporter);
+            exporter.end();
+            return null;
+        });
+    }
+
+    /**
+     * Finds the classes defined by more than one classpath entry, where all but the first definition are shadowed.
+     * Duplicates are recorded while the classpath is indexed, only their checksums are read afterwards,
+     * from the zip central directory where possible
+     * @param jarPaths paths to jar files
+     * @return duplicate classes sorted by class name
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    public synchronized List<DuplicateClass> findDuplicateClasses(List<String> jarPaths) throws IOException {
+        ClasspathIndex index = getClasspathIndex(jarPaths);
+        Map<String, List<ClasspathIndex.ClassLocation>> definitions = new TreeMap<>();
+        Map<ClassSource, Set<String>> entriesBySource = new LinkedHashMap<>();
+        for (Map.Entry<String, List<ClasspathIndex.ClassLocation>> entry : index.getShadowedClasses().entrySet()) {
+            List<ClasspathIndex.ClassLocation> locations = new ArrayList<>();
+            locations.add(index.find(entry.getKey()));
+            locations.addAll(entry.getValue());
+            definitions.put(entry.getKey().replace('/', '.'), locations);
+            for (ClasspathIndex.ClassLocation location : locations) {
+                entriesBySource.computeIfAbsent(location.source(), source -> new HashSet<>()).add(location.entry());
+            }
+        }
+        // one batch per source, so sources without random access are read once
+        Map<ClassSource, Map<String, Long>> checksums = new HashMap<>();
+        for (Map.Entry<ClassSource, Set<String>> entry : entriesBySource.entrySet()) {
+            checksums.put(entry.getKey(), entry.getKey().getChecksums(entry.getValue()));
+        }
+        List<DuplicateClass> duplicates = new ArrayList<>();
+        for (Map.Entry<String, List<ClasspathIndex.ClassLocation>> entry : definitions.entrySet()) {
+            List<String> locations = new ArrayList<>();
+            Set<Long> distinctChecksums = new HashSet<>();
+            for (ClasspathIndex.ClassLocation location : entry.getValue()) {
+                String outerEntryName = location.source().getOuterEntryName();
+                String jarPath = jarPaths.get(location.sourceIndex());
+                locations.add(outerEntryName == null ? jarPath : jarPath + "!/" + outerEntryName);
+                distinctChecksums.add(checksums.get(location.source()).get(location.entry()));
+            }
+            duplicates.add(new DuplicateClass(entry.getKey(), locations, distinctChecksums.size() > 1));
+        }
+        return duplicates;
+    }
+
+    /**
+     * @param mainClassName name of main class
+     * @param jarPaths paths to jar files
+     * @param stopAtFirst whether to stop the traversal at the first missing class
+     * @return missing classes
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    private synchronized List<MissingClass> analyze(String mainClassName, List<String> jarPaths, boolean stopAtFirst)
+            throws IOException {
+        return traverse(List.of(mainClassName), jarPaths, traversal -> keepResult(
+                List.of(stopAtFirst ? "first" : "all", mainClassName),
+                () -> traversal.findMissingClasses(mainClassName, stopAtFirst), ArrayList::new));
+    }
+
+    /**
+     * Call of a traversal method
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    private interface TraversalCall<T> {
+        T run(ClassGraphTraversal traversal) throws IOException;
+    }
+
+    /**
+     * Call computing a result that may be kept
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    private interface ResultCall<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * In incremental mode, gets the result of the same call on the same classpath if no reference changed since,
+     * computing and keeping it otherwise. The caller always gets a copy, so the kept result is never modified
+     * @param call call and its arguments
+     * @param run computes the result
+     * @param copy copies a result
+     * @return result of the call
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    private <T> T keepResult(List<Object> call, ResultCall<T> run, UnaryOperator<T> copy) throws IOException {
+        if (!incremental) {
+            return run.run();
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) incrementalState.getResult(call);
+        if (result == null) {
+            result = run.run();
+            incrementalState.putResult(call, result);
+        }
+        return copy.apply(result);
+    }
+
+    /**
+     * Runs a traversal of the classpath and publishes the metrics of the call
+     * @param rootClassNames classes the traversal will start from
+     * @param jarPaths paths to jar files
+     * @param call traversal method to run
+     * @return result of the traversal
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    private <T> T traverse(Collection<String> rootClassNames, List<String> jarPaths, TraversalCall<T> call)
+            throws IOException {
+        return traverse(rootClassNames, jarPaths, false, call);
+    }
+
+    /**
+     * Runs a traversal of the classpath and publishes the metrics of the call
+     * @param rootClassNames classes the traversal will start from
+     * @param jarPaths paths to jar files
+     * @param streaming whether classes must be analyzed one at a time as the traversal reaches them
+     * @param call traversal method to run
+     * @return result of the traversal
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    private <T> T traverse(Collection<String> rootClassNames, List<String> jarPaths, boolean streaming,
+                           TraversalCall<T> call) throws IOException {
+        DependencyCheckEvent event = new DependencyCheckEvent();
+        event.begin();
+        metrics.reset();
+        long start = System.nanoTime();
+        ClassGraphTraversal traversal = new ClassGraphTraversal(getReferenceSource(rootClassNames, jarPaths, streaming));
+        T result = call.run(traversal);
+        CheckMetrics checkMetrics = metrics.snapshot(rootClassNames.size(), System.nanoTime() - start, traversal);
+        if (event.shouldCommit()) {
+            event.set(checkMetrics);
+            event.commit();
+        }
+        if (metricsListener != null) {
+            metricsListener.checkCompleted(checkMetrics);
+        }
+        return result;
+    }
+
+    /**
+     * @param rootClassNames classes the traversal will start from
+     * @param jarPaths paths to jar files
+     * @param streaming whether classes must be analyzed one at a time as the traversal reaches them,
+     * without keeping their references beyond the bounded reference cache
+     * @return source of the referenced classes of every class on the classpath
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    private ReferenceSource getReferenceSource(Collection<String> rootClassNames, List<String> jarPaths,
+                                               boolean streaming) throws IOException {
+        ClasspathIndex index = getClasspathIndex(jarPaths);
+        ReferenceSource classpath = className -> getReferencedClasses(index, className);
+        if (streaming) {
+            return classpath;
+        }
+        if (incremental && (incrementalState == null || !incrementalState.getJarPaths().equals(jarPaths))) {
+            incrementalState = new IncrementalState(jarPaths);
+        }
+        // later incremental calls read few classes, the pipeline would walk the whole graph again
+        if (parallelism > 1 && (!incremental || incrementalState.isEmpty())) {
+            // analyze all reachable classes concurrently, then replay the sequential walk
+            // on the collected references so both modes report the same missing classes
+            classpath = new PipelinedReferenceCollector(className -> readClassFile(index, className),
+                    classFile -> parseClassFile(index, classFile), Math.max(1, parallelism / 2), parallelism)
+                    .collect(rootClassNames)::get;
+        }
+        if (!incremental) {
+            return classpath;
+        }
+        incrementalState.update(index.getSources(), classpath);
+        return incrementalState;
+    }
 
-        List<File> jarFiles = new ArrayList<>();
-        // collect all classes from the JAR files
+    /**
+     * Get the index of a classpath, reusing the classpath entries opened by previous calls
+     * unless they changed on disk since
+     * @param jarPaths paths to JAR files, jmod files or class directories
+     * @return index of the classpath
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    private ClasspathIndex getClasspathIndex(List<String> jarPaths) throws IOException {
+        long start = System.nanoTime();
+        List<ClassSource> sources = new ArrayList<>();
+        // collect all classes from the classpath entries
         for (String jarPath : jarPaths) {
-            File jarFile = new File(jarPath);
-            if (!jarFile.exists() || !jarFile.isFile()) {
+            File file = new File(jarPath);
+            if (!file.exists()) {
                 throw new IOException("JAR file not found: " + jarPath);
             }
-            jarFiles.add(jarFile);
-        }
-
-        Stack<String> classesToCheck = new Stack<>();
-        classesToCheck.add(mainClassName);
-        referencedClasses.add(mainClassName);
-
-        // BFS of class reference graph with one visitation per node
-        while (!classesToCheck.isEmpty()) {
-            String className = classesToCheck.pop();
-            boolean classFound = false;
-            // analyze the class and collect all referenced classes
-            for (File jarFile : jarFiles) {
-                ClassNode classNode = getClassNodeFromJar(jarFile, className);
-                if (classNode != null) {
-                    Set<String> classes = getReferencedClassesFromClass(classNode);
-                    classesToCheck.addAll(classes.stream()
-                            .filter(c -> !referencedClasses.contains(c))
-                            .collect(Collectors.toSet()));
-                    referencedClasses.addAll(classes);
-                    classFound = true;
-                    break;
+            File canonicalFile = file.getCanonicalFile();
+            ClassSource source = openSources.get(canonicalFile);
+            if (source != null && source.isStale()) {
+                openSources.remove(canonicalFile);
+                removeReferences(source);
+                source.close();
+                source = null;
+            }
+            if (source == null) {
+                ClassSourceOpenEvent event = new ClassSourceOpenEvent();
+                event.begin();
+                source = ClassSource.open(canonicalFile);
+                openSources.put(canonicalFile, source);
+                metrics.sourceOpened();
+                if (event.shouldCommit()) {
+                    event.path = canonicalFile.getPath();
+                    event.classCount = source.getClasses().size();
+                    event.commit();
                 }
             }
-            if (!classFound) {
-                return Optional.of(className);
+            sources.add(source);
+        }
+        // sources are compared by identity, so a reopened entry is indexed again
+        if (classpathIndex == null || classpathIndex.getSources().size() != sources.size()
+                || changedSources(classpathIndex.getSources(), sources) * 2 > sources.size()) {
+            classpathIndex = new ClasspathIndex(sources, false);
+        } else {
+            // the index of the few entries that changed is patched, the others are not indexed again
+            for (int i = 0; i < sources.size(); i++) {
+                if (classpathIndex.getSources().get(i) != sources.get(i)) {
+                    classpathIndex.replaceSource(i, sources.get(i));
+                }
             }
         }
+        metrics.addIndexTime(System.nanoTime() - start);
+        return classpathIndex;
+    }
 
-        return Optional.empty();
+    /**
+     * @param indexed sources of an index
+     * @param sources sources of as many classpath entries
+     * @return number of positions holding another source
+     */
+    private static int changedSources(List<ClassSource> indexed, List<ClassSource> sources) {
+        int changed = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            if (indexed.get(i) != sources.get(i)) changed++;
+        }
+        return changed;
     }
 
     /**
-     * Get the ClassNode (ASM representation) from a JAR file for a specific class
-     * @param jarFile jar file to search in
+     * Get all referenced classes of a specific class from the classpath index using ASM,
+     * including static method calls, and ignore standard library classes.
+     * References stay in the shared reference cache, so later lookups usually do not analyze the class again
+     * @param index index of the classpath to search in
      * @param className class name
-     * @return ClassNode iff class is found, null otherwise
+     * @return set of referenced classes iff class is found, null otherwise
      * @throws IOException if an I/O error has occurred
      */
-    private ClassNode getClassNodeFromJar(File jarFile, String className) throws IOException {
-        try (JarFile jar = new JarFile(jarFile)) {
-            JarEntry entry = jar.getJarEntry(className.replace('.', '/') + ".class");
-            if (entry != null) {
-                ClassReader reader = new ClassReader(jar.getInputStream(entry));
-                ClassNode classNode = new ClassNode();
-                reader.accept(classNode, 0);
-                return classNode;
+    private Set<String> getReferencedClasses(ClasspathIndex index, String className) throws IOException {
+        ClasspathIndex.ClassLocation location = index.find(className);
+        if (location == null) {
+            return null;
+        }
+        ClassSource source = location.source();
+        Set<String> classes = referenceSets.get(source, className);
+        metrics.referenceLookup(classes != null);
+        if (classes != null) {
+            return classes;
+        }
+        if (referenceCache != null) {
+            MappedDependencyGraph graph = getCachedGraph(source);
+            classes = graph.referencesOf(className);
+            if (classes == null) {
+                // the cache file does not match the source although its identity does, analyze the source again
+                classes = storeCachedGraph(source, graph).referencesOf(className);
+                if (classes == null) {
+                    throw new IOException("Class file not found: " + className);
+                }
             }
+        } else if (!source.isRandomAccess()) {
+            return readAllReferencedClasses(source, className);
+        } else {
+            classes = readReferencedClasses(readClassBytes(index, location));
         }
-        return null;
+        // filter out platform classes
+        classes.removeIf(platformClassFilter::isPlatformClass);
+        referenceSets.put(source, className, classes);
+        return classes;
     }
 
     /**
-     * Get all referenced classes from a given class file using ASM,
-     * including static method calls, and ignore standard library classes
-     * @param classNode class to examine
-     * @return set of referenced classes
+     * Reader stage of the pipeline: reads the bytes of a class file from the classpath index,
+     * or gets the references of the class without reading it alone if they are cached or the source is read in bulk
+     * @param index index of the classpath to search in
+     * @param className class name
+     * @return class file iff class is found, null otherwise
+     * @throws IOException if an I/O error has occurred
      */
-    private Set<String> getReferencedClassesFromClass(ClassNode classNode) {
-        Set<String> classes = new HashSet<>();
-        for (MethodNode method : classNode.methods) {
-            for (AbstractInsnNode insn : method.instructions) {
-                String classNameReferenced;
-
-                // check for instantiation, cast, or instanceof operations
-                if (insn.getOpcode() == Opcodes.NEW || insn.getOpcode() == Opcodes.ANEWARRAY
-                        || insn.getOpcode() == Opcodes.MULTIANEWARRAY
-                        || insn.getOpcode() == Opcodes.CHECKCAST
-                        || insn.getOpcode() == Opcodes.INSTANCEOF) {
-                    TypeInsnNode typeInsn = (TypeInsnNode) insn;
-                    // convert from internal format to class name format
-                    classNameReferenced = typeInsn.desc.replace('/', '.')
-                            .replace("[", ""); // strip array symbols
-                    if(classNameReferenced.startsWith("L") && classNameReferenced.endsWith(";")) {
-                        // remove L prefix and ; suffix
-                        classNameReferenced = classNameReferenced.substring(1, classNameReferenced.length() - 1);
-                    }
-                    if(isPrimitive(classNameReferenced)) continue;
-                }
+    private PipelinedReferenceCollector.ClassFile readClassFile(ClasspathIndex index, String className)
+            throws IOException {
+        ClasspathIndex.ClassLocation location = index.find(className);
+        if (location == null) {
+            return null;
+        }
+        ClassSource source = location.source();
+        if (referenceCache != null || !source.isRandomAccess()) {
+            return new PipelinedReferenceCollector.ClassFile(className, null, getReferencedClasses(index, className));
+        }
+        Set<String> classes = referenceSets.get(source, className);
+        metrics.referenceLookup(classes != null);
+        if (classes != null) {
+            return new PipelinedReferenceCollector.ClassFile(className, null, classes);
+        }
+        return new PipelinedReferenceCollector.ClassFile(className, readClassBytes(index, location), null);
+    }
 
-                // check for static method calls
-                // and constructor calls in case of extending a missing class
-                else if (insn.getOpcode() == Opcodes.INVOKESTATIC || insn.getOpcode() == Opcodes.INVOKESPECIAL) {
-                    MethodInsnNode methodInsn = (MethodInsnNode) insn;
-                    classNameReferenced = methodInsn.owner.replace('/', '.');
-                }
+    /**
+     * @param index index of the classpath the class is on
+     * @param location location of the class file
+     * @return class file bytes
+     * @throws IOException if an I/O error has occurred
+     */
+    private byte[] readClassBytes(ClasspathIndex index, ClasspathIndex.ClassLocation location) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream in = index.open(location)) {
+            byte[] bytes = in.readAllBytes();
+            metrics.classRead(System.nanoTime() - start, bytes.length);
+            return bytes;
+        }
+    }
 
-                // check for static field accesses
-                else if (insn.getOpcode() == Opcodes.GETSTATIC || insn.getOpcode() == Opcodes.PUTSTATIC) {
-                    FieldInsnNode fieldInsn = (FieldInsnNode) insn;
-                    classNameReferenced = fieldInsn.owner.replace('/', '.');
-                }
-                else continue;
-
-                classes.add(classNameReferenced);
-            }
-            // add local variable signatures because generic classes only show their assigned type here
-            // if the generic class is never assigned, the bytecode does not have the assigned type it seems?
-            for (LocalVariableNode localVariable : method.localVariables) {
-                classes.addAll(splitSignature(localVariable.desc));
-                if(localVariable.signature != null)
-                    classes.addAll(splitSignature(localVariable.signature));
-            }
-            // add method return type
-            classes.addAll(splitSignature(method.desc.substring(method.desc.indexOf(")") + 1)));
+    /**
+     * Parser stage of the pipeline: analyzes the bytes of a class file and caches its references
+     * @param index index of the classpath the class file was read from
+     * @param classFile class file
+     * @return set of referenced classes
+     */
+    private Set<String> parseClassFile(ClasspathIndex index, PipelinedReferenceCollector.ClassFile classFile) {
+        Set<String> classes = readReferencedClasses(classFile.bytes());
+        classes.removeIf(platformClassFilter::isPlatformClass);
+        referenceSets.put(index.find(classFile.className()).source(), classFile.className(), classes);
+        return classes;
+    }
 
-            // extract method, its parameters and local variables annotations
-            classes.addAll(getAnnotations(method));
+    /**
+     * Analyzes all classes of a source without random access in a single pass over it
+     * and caches their references, reading one class alone would cost a pass as well
+     * @param source class source
+     * @param className class name
+     * @return set of referenced classes of the class
+     * @throws IOException if an I/O error has occurred
+     */
+    private Set<String> readAllReferencedClasses(ClassSource source, String className) throws IOException {
+        synchronized (source) {
+            Set<String> classes = referenceSets.get(source, className);
+            if (classes == null) {
+                for (Map.Entry<String, Set<String>> entry : readSource(source).entrySet()) {
+                    entry.getValue().removeIf(platformClassFilter::isPlatformClass);
+                    referenceSets.put(source, entry.getKey(), entry.getValue());
+                    // the cache may already have evicted the requested class again
+                    if (entry.getKey().equals(className)) classes = entry.getValue();
+                }
+            }
+            return classes;
         }
+    }
 
-        // add field signatures because generic classes only show their assigned type here
-        // also add their annotations
-        for (FieldNode field : classNode.fields) {
-            classes.addAll(splitSignature(field.desc));
-            if(field.signature != null)
-                classes.addAll(splitSignature(field.signature));
-            classes.addAll(getAnnotations(field));
+    /**
+     * Get the reference graph of all classes in a class source from the persistent cache,
+     * analyzing the whole source and storing its graph if it is not cached yet
+     * @param source class source
+     * @return reference graph of all classes in the source
+     * @throws IOException if an I/O error has occurred
+     */
+    private MappedDependencyGraph getCachedGraph(ClassSource source) throws IOException {
+        synchronized (source) {
+            MappedDependencyGraph graph = source.getCachedGraph();
+            if (graph != null) {
+                return graph;
+            }
+            long start = System.nanoTime();
+            graph = referenceCache.get(source, analysisMode);
+            metrics.addCacheTime(System.nanoTime() - start);
+            metrics.graphLookup(graph != null);
+            if (graph == null) {
+                return storeCachedGraph(source, null);
+            }
+            source.setCachedGraph(graph);
+            return graph;
         }
+    }
 
-        // add classes annotations
-        classes.addAll(getAnnotations(classNode));
-
-        // add interfaces
-        classes.addAll(classNode.interfaces.stream().map(i -> i.replace("/", ".")).toList());
-
-        // filter out std classes
-        return classes.stream().filter(this::isNotStandardLibraryClass).collect(Collectors.toSet());
+    /**
+     * Analyzes a whole class source and stores its reference graph in the persistent cache
+     * @param source class source
+     * @param stale graph of the source found not to match it or null, another thread may have replaced it already
+     * @return reference graph of all classes in the source
+     * @throws IOException if an I/O error has occurred
+     */
+    private MappedDependencyGraph storeCachedGraph(ClassSource source, MappedDependencyGraph stale)
+            throws IOException {
+        synchronized (source) {
+            MappedDependencyGraph graph = source.getCachedGraph();
+            if (stale != null && graph != stale) {
+                return graph;
+            }
+            if (stale != null) {
+                metrics.graphLookup(false);
+            }
+            Map<String, Set<String>> references = readSource(source);
+            long start = System.nanoTime();
+            graph = referenceCache.put(source, analysisMode, references);
+            metrics.addCacheTime(System.nanoTime() - start);
+            source.setCachedGraph(graph);
+            return graph;
+        }
     }
 
-    private Set<String> getAnnotations(MethodNode method) {
-        List<AnnotationNode> annotations =
-                getBasicAnnotations(method.visibleAnnotations, method.invisibleAnnotations,
-                        method.visibleTypeAnnotations, method.invisibleTypeAnnotations);
-        if (method.visibleParameterAnnotations != null)
-            for (List<AnnotationNode> parameterAnnotations : method.visibleParameterAnnotations)
-                if(parameterAnnotations != null)
-                    annotations.addAll(parameterAnnotations);
-        if (method.invisibleParameterAnnotations != null)
-            for (List<AnnotationNode> parameterAnnotations : method.invisibleParameterAnnotations)
-                if(parameterAnnotations != null)
-                    annotations.addAll(parameterAnnotations);
-        if (method.visibleLocalVariableAnnotations != null)
-            annotations.addAll(method.visibleLocalVariableAnnotations);
-        if (method.invisibleLocalVariableAnnotations != null)
-            annotations.addAll(method.invisibleLocalVariableAnnotations);
-        return annotations.stream()
-                .map(a -> a.desc.substring(1, a.desc.length() - 1).replace("/", "."))
-                .collect(Collectors.toSet());
+    /**
+     * @param source class source
+     * @return unfiltered references of every class in the source by class name
+     * @throws IOException if an I/O error has occurred
+     */
+    private Map<String, Set<String>> readSource(ClassSource source) throws IOException {
+        Map<String, Set<String>> references = new HashMap<>();
+        source.forEachClass((internalName, in) -> {
+            long start = System.nanoTime();
+            byte[] bytes = in.readAllBytes();
+            metrics.classRead(System.nanoTime() - start, bytes.length);
+            references.put(internalName.replace('/', '.'), readReferencedClasses(bytes));
+        });
+        return references;
     }
 
-    private Set<String> getAnnotations(FieldNode field) {
-        List<AnnotationNode> annotations =
-                getBasicAnnotations(field.visibleAnnotations, field.invisibleAnnotations,
-                        field.visibleTypeAnnotations, field.invisibleTypeAnnotations);
-        return annotations.stream()
-                .map(a -> a.desc.substring(1, a.desc.length() - 1).replace("/", "."))
-                .collect(Collectors.toSet());
+    /**
+     * Forgets the references analyzed by previous calls, needed when the analysis settings change
+     */
+    private synchronized void clearReferences() {
+        referenceSets.clear();
+        incrementalState = null;
+        for (ClassSource source : openSources.values()) {
+            source.clearCachedGraph();
+        }
     }
 
-    private Set<String> getAnnotations(ClassNode classNode) {
-        List<AnnotationNode> annotations =
-                getBasicAnnotations(classNode.visibleAnnotations, classNode.invisibleAnnotations,
-                        classNode.visibleTypeAnnotations, classNode.invisibleTypeAnnotations);
-        return annotations.stream()
-                .map(a -> a.desc.substring(1, a.desc.length() - 1).replace("/", "."))
-                .collect(Collectors.toSet());
+    /**
+     * Forgets the references of the classes of a source and its nested sources
+     * @param source class source
+     */
+    private void removeReferences(ClassSource source) {
+        referenceSets.remove(source);
+        for (ClassSource nested : source.getNestedSources()) {
+            removeReferences(nested);
+        }
     }
 
-    private List<AnnotationNode> getBasicAnnotations(List<AnnotationNode> visibleAnnotations, List<AnnotationNode> invisibleAnnotations, List<TypeAnnotationNode> visibleTypeAnnotations, List<TypeAnnotationNode> invisibleTypeAnnotations) {
-        List<AnnotationNode> annotations = new ArrayList<>();
-        if (visibleAnnotations != null)
-            annotations.addAll(visibleAnnotations);
-        if (invisibleAnnotations != null)
-            annotations.addAll(invisibleAnnotations);
-        if (visibleTypeAnnotations != null)
-            annotations.addAll(visibleTypeAnnotations);
-        if (invisibleTypeAnnotations != null)
-            annotations.addAll(invisibleTypeAnnotations);
-        return annotations;
+    /**
+     * Closes the classpath entries opened by previous calls that were deleted or changed on disk since,
+     * so a long-running checker does not keep them open until they are requested again
+     * @return number of closed entries
+     * @throws IOException if an I/O error has occurred while closing an entry, all stale entries are dropped anyway
+     */
+    synchronized int closeStaleSources() throws IOException {
+        IOException exception = null;
+        int closed = 0;
+        for (Iterator<ClassSource> iterator = openSources.values().iterator(); iterator.hasNext(); ) {
+            ClassSource source = iterator.next();
+            if (!source.isStale()) continue;
+            iterator.remove();
+            removeReferences(source);
+            closed++;
+            try {
+                source.close();
+            } catch (IOException e) {
+                if (exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+        if (exception != null) throw exception;
+        return closed;
     }
 
     /**
-     * Hopefully splits complex generic class types
-     * @param signature class type (not a function signature)
-     * @return list of non std classes
+     * Closes all classpath entries opened by previous calls
+     * @throws IOException if an I/O error has occurred
      */
-    private List<String> splitSignature(String signature) {
-        return Arrays.stream(signature.replace("[", "").split("[;<>]"))
-                .filter(t -> t.startsWith("L")) // filter for objects only
-                .map(t -> t.substring(1))
-                .map(t -> t.replace("/", "."))
-                .toList();
+    @Override
+    public synchronized void close() throws IOException {
+        IOException exception = null;
+        for (ClassSource source : openSources.values()) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                if (exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+        openSources.clear();
+        referenceSets.clear();
+        classpathIndex = null;
+        if (exception != null) throw exception;
     }
 
     /**
-     * @param classNameReferenced class to examine
-     * @return true iff class name is a primitive type
+     * Get all referenced classes from a class file using ASM, including standard library classes
+     * @param bytes class file bytes
+     * @return set of referenced classes
      */
-    private boolean isPrimitive(String classNameReferenced) {
-        return switch (classNameReferenced) {
-            case "V", "Z", "B", "C", "S", "I", "J", "F", "D" -> true;
-            default -> false;
-        };
+    private Set<String> readReferencedClasses(byte[] bytes) {
+        long start = System.nanoTime();
+        Set<String> classes = readReferencedClasses(new ClassReader(bytes), analysisMode, descriptors);
+        metrics.classParsed(System.nanoTime() - start);
+        return classes;
     }
 
     /**
-     * Helper method to check if the class belongs to the Java standard library
-     * @param className class name to check
-     * @return true iff the class belongs to the standard library
+     * Get all referenced classes from a class file using ASM, including standard library classes
+     * @param reader reader of the class file
+     * @param analysisMode how referenced classes are extracted
+     * @param descriptors cache of the classes named by descriptors
+     * @return set of referenced classes
      */
-    private boolean isNotStandardLibraryClass(String className) {
-        return Stream.of("java.", "javax.", "jdk.", "sun.", "com.sun.").noneMatch(className::startsWith);
+    static Set<String> readReferencedClasses(ClassReader reader, AnalysisMode analysisMode,
+                                             DescriptorCache descriptors) {
+        ReferenceCollector collector = new ReferenceCollector(descriptors);
+        if (analysisMode == AnalysisMode.FAST) {
+            // instruction operands all live in the constant pool, so only declarations need visiting
+            ConstantPoolScanner.scan(reader, collector.getReferencedClasses(), descriptors);
+            reader.accept(collector, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        } else {
+            // stack map frames never reference classes missing from other attributes
+            reader.accept(collector, ClassReader.SKIP_FRAMES);
+        }
+        return collector.getReferencedClasses();
     }
 }
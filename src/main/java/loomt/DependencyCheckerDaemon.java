@@ -0,0 +1,164 @@
+package loomt;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Long-running server that keeps a {@link DependencyChecker} with its open JAR files and analyzed references
+ * in memory and answers check requests from thin clients over a loopback socket.
+ * JAR files that changed on disk between requests are reopened and analyzed again, all others are reused.
+ *
+ * <p>A request is a list of UTF-8 lines terminated by an empty line: a command ({@value #CHECK},
+ * {@value #CHECK_ALL} or {@value #SHUTDOWN}), then for checks the main class name and the JAR paths.
+ * The response consists of the lines the command line application would print, after which the
+ * connection is closed. A check failing on malformed input is answered with an error line.
+ * A client that does not complete its request within {@value #READ_TIMEOUT_MILLIS} ms is disconnected,
+ * so it cannot hold up the requests queued behind it. JAR files deleted or changed on disk are closed after
+ * every request.
+ */
+public class DependencyCheckerDaemon implements Closeable {
+    static final String CHECK = "CHECK";
+    static final String CHECK_ALL = "CHECK_ALL";
+    static final String SHUTDOWN = "SHUTDOWN";
+    static final int READ_TIMEOUT_MILLIS = 10_000;
+
+    private final DependencyChecker checker;
+    private final ServerSocket serverSocket;
+    private final int readTimeoutMillis;
+
+    /**
+     * @param checker checker to answer requests with
+     * @param port port to listen on, 0 picks a free port
+     * @throws IOException if the socket cannot be opened
+     */
+    public DependencyCheckerDaemon(DependencyChecker checker, int port) throws IOException {
+        this(checker, port, READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param checker checker to answer requests with
+     * @param port port to listen on, 0 picks a free port
+     * @param readTimeoutMillis time a client may take to send its request
+     * @throws IOException if the socket cannot be opened
+     */
+    DependencyCheckerDaemon(DependencyChecker checker, int port, int readTimeoutMillis) throws IOException {
+        this.checker = checker;
+        this.readTimeoutMillis = readTimeoutMillis;
+        // only local clients may use the daemon
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * @return port the daemon listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Answers requests one at a time until a shutdown request arrives or the daemon is closed
+     * @throws IOException if an I/O error has occurred while accepting connections
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                // accept fails once the daemon is closed
+                if (serverSocket.isClosed()) break;
+                continue;
+            }
+            try (socket) {
+                socket.setSoTimeout(readTimeoutMillis);
+                if (!handle(socket)) {
+                    break;
+                }
+            } catch (IOException e) {
+                // the client timed out or went away, only its own request is lost
+            }
+            try {
+                checker.closeStaleSources();
+            } catch (IOException e) {
+                // the stale entries are dropped anyway
+            }
+        }
+        close();
+    }
+
+    /**
+     * @param socket client connection
+     * @return false iff the client requested a shutdown
+     * @throws IOException if an I/O error has occurred while communicating with the client
+     */
+    private boolean handle(Socket socket) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+        List<String> request = new ArrayList<>();
+        for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+            request.add(line);
+        }
+        if (request.isEmpty()) {
+            out.println("Empty request");
+            return true;
+        }
+        switch (request.get(0)) {
+            case SHUTDOWN -> {
+                out.println("Daemon stopped.");
+                return false;
+            }
+            case CHECK, CHECK_ALL -> {
+                if (request.size() < 3) {
+                    out.println("Missing main class or JAR files");
+                    return true;
+                }
+                try {
+                    Main.check(checker, request.get(0).equals(CHECK_ALL), request.get(1),
+                            request.subList(2, request.size()), out);
+                } catch (IOException e) {
+                    out.println(e.getMessage());
+                } catch (RuntimeException e) {
+                    // e.g. a malformed class file, only this request fails and the daemon keeps serving
+                    out.println("Check failed: " + e);
+                }
+            }
+            default -> out.println("Unknown command: " + request.get(0));
+        }
+        return true;
+    }
+
+    /**
+     * Sends a request to a running daemon
+     * @param port port of the daemon
+     * @param request request lines without the terminating empty line
+     * @return response lines
+     * @throws IOException if the daemon cannot be reached
+     */
+    public static List<String> send(int port, List<String> request) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            PrintStream out = new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            for (String line : request) {
+                out.println(line);
+            }
+            out.println();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            List<String> response = new ArrayList<>();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                response.add(line);
+            }
+            return response;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
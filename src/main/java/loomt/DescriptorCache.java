@@ -0,0 +1,68 @@
+package loomt;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Memoises the class names named by descriptors, signatures and internal names, so every unique string is parsed
+ * once however many classes, methods and instructions use it. Cached names are shared string instances, which also
+ * keeps the reference sets of many classes from holding copies of the same names. Thread-safe.
+ *
+ * <p>The cache is bounded: when it reaches its capacity it is cleared and refilled by the following lookups.
+ */
+class DescriptorCache {
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final String[] NONE = {};
+
+    private final int capacity;
+    private final Map<String, String[]> descriptors = new ConcurrentHashMap<>();
+    private final Map<String, String> internalNames = new ConcurrentHashMap<>();
+
+    DescriptorCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity maximum number of cached strings of each kind
+     */
+    DescriptorCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param signature field or method descriptor, or class, method or field signature
+     * @return names of the classes the signature names
+     */
+    String[] classesOf(String signature) {
+        String[] classes = descriptors.get(signature);
+        if (classes == null) {
+            Set<String> scanned = new LinkedHashSet<>();
+            new SignatureScanner(scanned).addSignature(signature);
+            classes = scanned.isEmpty() ? NONE : scanned.toArray(NONE);
+            if (descriptors.size() >= capacity) descriptors.clear();
+            descriptors.put(signature, classes);
+        }
+        return classes;
+    }
+
+    /**
+     * @param internalName internal name of a class, e.g. {@code com/name/Class}
+     * @return class name, e.g. {@code com.name.Class}
+     */
+    String classNameOf(String internalName) {
+        String className = internalNames.get(internalName);
+        if (className == null) {
+            className = internalName.replace('/', '.');
+            if (internalNames.size() >= capacity) internalNames.clear();
+            internalNames.put(internalName, className);
+        }
+        return className;
+    }
+
+    /**
+     * @return number of cached strings
+     */
+    int size() {
+        return descriptors.size() + internalNames.size();
+    }
+}
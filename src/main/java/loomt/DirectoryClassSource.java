@@ -0,0 +1,110 @@
+package loomt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Exploded class directory, e.g. the {@code build/classes} output of a compiler.
+ * A directory has no single modification time covering its files, so the class files are fingerprinted
+ * by their count, total size, latest modification time and a digest of their sorted names, and a change of any of
+ * them makes the source stale, including a renamed class file whose timestamps were kept.
+ */
+class DirectoryClassSource extends ClassSource {
+    private final Path root;
+    private final String path;
+    private final String fingerprint;
+    private final Map<String, String> classes = new HashMap<>();
+
+    /**
+     * Walks a directory and indexes its class files
+     * @param directory class directory
+     * @throws IOException if an I/O error has occurred while walking the directory
+     */
+    DirectoryClassSource(File directory) throws IOException {
+        this.root = directory.toPath();
+        this.path = directory.getCanonicalPath();
+        this.fingerprint = fingerprint(classes);
+    }
+
+    /**
+     * Walks the class files of the directory
+     * @param classes map to put the internal names and entry names of the class files into or null
+     * @return fingerprint of the class files
+     * @throws IOException if an I/O error has occurred
+     */
+    private String fingerprint(Map<String, String> classes) throws IOException {
+        long count = 0;
+        long size = 0;
+        long lastModified = 0;
+        List<String> entryNames = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String entryName = root.relativize(file).toString().replace(File.separatorChar, '/');
+                String name = internalName(entryName);
+                if (name == null)
+                    continue;
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attributes.isRegularFile())
+                    continue;
+                count++;
+                size += attributes.size();
+                lastModified = Math.max(lastModified, attributes.lastModifiedTime().toMillis());
+                entryNames.add(entryName);
+                if (classes != null)
+                    classes.put(name, entryName);
+            }
+        }
+        // the walk order depends on the file system
+        Collections.sort(entryNames);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        for (String entryName : entryNames) {
+            digest.update(entryName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return count + "\n" + size + '\n' + lastModified + '\n' + HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    String getIdentity() {
+        return path + '\n' + fingerprint;
+    }
+
+    @Override
+    boolean isStale() {
+        if (!Files.isDirectory(root)) return true;
+        try {
+            return !fingerprint.equals(fingerprint(null));
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    @Override
+    Map<String, String> getClasses() {
+        return classes;
+    }
+
+    @Override
+    InputStream open(String entryName) throws IOException {
+        return Files.newInputStream(root.resolve(entryName));
+    }
+
+    @Override
+    public void close() {
+        // no open files
+    }
+}
@@ -0,0 +1,17 @@
+package loomt;
+
+import java.util.List;
+
+/**
+ * Class defined by more than one classpath entry, only the first definition is ever loaded
+ * @param className name of the class
+ * @param locations JAR paths defining the class in classpath order, the first one wins; a JAR nested in a fat JAR
+ * is named by the path of the fat JAR, {@code !/} and its entry name
+ * @param contentDiffers true iff the class files are not all identical, by their CRC-32 and size
+ */
+public record DuplicateClass(String className, List<String> locations, boolean contentDiffers) {
+    @Override
+    public String toString() {
+        return className + " in " + String.join(", ", locations) + (contentDiffers ? " (different content)" : "");
+    }
+}
@@ -0,0 +1,196 @@
+package loomt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Writes the class reference graph while it is traversed: every class is written as a node with its outgoing edges
+ * as soon as it is analyzed, nothing is kept for the class level. Package and JAR levels only remember
+ * the aggregated nodes and edges already written, so their memory grows with the number of packages or JAR files,
+ * not with the number of class references
+ */
+final class GraphExporter implements ClassGraphTraversal.ReferenceListener {
+    static final String DEFAULT_PACKAGE = "(default)";
+    static final String MISSING_JAR = "(missing)";
+
+    private final Writer out;
+    private final GraphFormat format;
+    private final GraphLevel level;
+    private final Function<String, String> jarPathOf;
+    // aggregated nodes and edges written so far
+    private final ClassNameTable nodes = new ClassNameTable();
+    private final BitSet writtenNodes = new BitSet();
+    private final Set<Long> writtenEdges = new HashSet<>();
+
+    /**
+     * @param out writer receiving the graph, better buffered
+     * @param format output format
+     * @param level granularity of the nodes
+     * @param jarPathOf path of the JAR file defining a class, null if it is missing from the classpath
+     */
+    GraphExporter(Writer out, GraphFormat format, GraphLevel level, Function<String, String> jarPathOf) {
+        this.out = out;
+        this.format = format;
+        this.level = level;
+        this.jarPathOf = jarPathOf;
+    }
+
+    /**
+     * Writes what precedes the nodes and edges
+     * @throws IOException if an I/O error has occurred while writing
+     */
+    void begin() throws IOException {
+        switch (format) {
+            case DOT -> out.write("digraph dependencies {\n");
+            case GRAPHML -> out.write("""
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <graphml xmlns="http://graphml.graphdrawing.org/xmlns">
+                      <key id="jar" for="node" attr.name="jar" attr.type="string"/>
+                      <key id="missing" for="node" attr.name="missing" attr.type="boolean"/>
+                      <graph id="dependencies" edgedefault="directed">
+                    """);
+            case JSONL -> { }
+        }
+    }
+
+    /**
+     * Writes what follows the nodes and edges and flushes the writer
+     * @throws IOException if an I/O error has occurred while writing
+     */
+    void end() throws IOException {
+        switch (format) {
+            case DOT -> out.write("}\n");
+            case GRAPHML -> out.write("  </graph>\n</graphml>\n");
+            case JSONL -> { }
+        }
+        out.flush();
+    }
+
+    @Override
+    public void classAnalyzed(String className, Set<String> references) throws IOException {
+        if (level == GraphLevel.CLASS) {
+            writeNode(className, references == null ? null : jarPathOf.apply(className), references == null);
+            if (references == null) return;
+            for (String referenced : references) {
+                if (!referenced.equals(className)) writeEdge(className, referenced);
+            }
+            return;
+        }
+        String node = nodeOf(className, references == null);
+        int id = nodes.intern(node);
+        if (!writtenNodes.get(id)) {
+            writtenNodes.set(id);
+            if (level == GraphLevel.JAR) {
+                boolean missing = node.equals(MISSING_JAR);
+                writeNode(node, missing ? null : node, missing);
+            } else {
+                writeNode(node, null, false);
+            }
+        }
+        if (references == null) return;
+        for (String referenced : references) {
+            String referencedNode = nodeOf(referenced, false);
+            int referencedId = nodes.intern(referencedNode);
+            if (referencedId != id && writtenEdges.add((long) id << 32 | referencedId)) {
+                writeEdge(node, referencedNode);
+            }
+        }
+    }
+
+    /**
+     * @param className class name
+     * @param missing whether the class is known to be missing from the classpath
+     * @return name of the aggregated node of the class
+     */
+    private String nodeOf(String className, boolean missing) {
+        if (level == GraphLevel.PACKAGE) {
+            int end = className.lastIndexOf('.');
+            return end < 0 ? DEFAULT_PACKAGE : className.substring(0, end);
+        }
+        String jarPath = missing ? null : jarPathOf.apply(className);
+        return jarPath == null ? MISSING_JAR : jarPath;
+    }
+
+    /**
+     * @param id node name
+     * @param jarPath JAR path attribute, null for none
+     * @param missing missing attribute, only written when true or when a JAR path is known
+     * @throws IOException if an I/O error has occurred while writing
+     */
+    private void writeNode(String id, String jarPath, boolean missing) throws IOException {
+        boolean attributes = jarPath != null || missing;
+        switch (format) {
+            case DOT -> {
+                out.write("  " + dotString(id));
+                if (attributes) {
+                    out.write(" [");
+                    if (jarPath != null) out.write("jar=" + dotString(jarPath) + ", ");
+                    out.write(missing ? "missing=true, color=red]" : "missing=false]");
+                }
+                out.write(";\n");
+            }
+            case GRAPHML -> {
+                out.write("    <node id=\"" + xmlString(id) + "\"");
+                if (attributes) {
+                    out.write(">");
+                    if (jarPath != null) out.write("<data key=\"jar\">" + xmlString(jarPath) + "</data>");
+                    out.write("<data key=\"missing\">" + missing + "</data></node>\n");
+                } else {
+                    out.write("/>\n");
+                }
+            }
+            case JSONL -> {
+                out.write("{\"type\":\"node\",\"id\":" + jsonString(id));
+                if (jarPath != null) out.write(",\"jar\":" + jsonString(jarPath));
+                if (attributes) out.write(",\"missing\":" + missing);
+                out.write("}\n");
+            }
+        }
+    }
+
+    /**
+     * @param source referencing node
+     * @param target referenced node
+     * @throws IOException if an I/O error has occurred while writing
+     */
+    private void writeEdge(String source, String target) throws IOException {
+        switch (format) {
+            case DOT -> out.write("  " + dotString(source) + " -> " + dotString(target) + ";\n");
+            case GRAPHML -> out.write("    <edge source=\"" + xmlString(source) + "\" target=\""
+                    + xmlString(target) + "\"/>\n");
+            case JSONL -> out.write("{\"type\":\"edge\",\"source\":" + jsonString(source) + ",\"target\":"
+                    + jsonString(target) + "}\n");
+        }
+    }
+
+    private static String dotString(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+
+    private static String xmlString(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,19 @@
+package loomt;
+
+/**
+ * Output format of an exported class reference graph
+ */
+public enum GraphFormat {
+    /**
+     * Graphviz DOT digraph
+     */
+    DOT,
+    /**
+     * GraphML document with a {@code jar} and a {@code missing} node attribute
+     */
+    GRAPHML,
+    /**
+     * JSON Lines, one {@code node} or {@code edge} object per line
+     */
+    JSONL
+}
@@ -0,0 +1,19 @@
+package loomt;
+
+/**
+ * Granularity of the nodes of an exported class reference graph
+ */
+public enum GraphLevel {
+    /**
+     * One node per class
+     */
+    CLASS,
+    /**
+     * One node per package, the unnamed package is named {@code (default)}
+     */
+    PACKAGE,
+    /**
+     * One node per JAR file, classes missing from the classpath are gathered in a node named {@code (missing)}
+     */
+    JAR
+}
@@ -0,0 +1,103 @@
+package loomt;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Reachability state of the previous checks of one classpath, kept in incremental mode: the references of every
+ * class reached so far and the results of the calls made. When classpath entries are replaced because they changed
+ * on disk, only the reached classes defined by the old or the new version of an entry are analyzed again and their
+ * references compared with the kept ones. If none of them differ the kept results still hold, otherwise the results
+ * are dropped and the next traversals run on the kept references, reading only classes reached for the first time.
+ */
+final class IncrementalState implements ReferenceSource {
+    private final List<String> jarPaths;
+    // sources of the classpath entries when the state was last updated
+    private List<ClassSource> sources = List.of();
+    // references of every class reached on this classpath, null for missing classes
+    private final Map<String, Set<String>> references = new HashMap<>();
+    // results of previous calls by call
+    private final Map<List<Object>, Object> results = new HashMap<>();
+    private ReferenceSource classpath;
+
+    /**
+     * @param jarPaths paths of the classpath entries the state belongs to
+     */
+    IncrementalState(List<String> jarPaths) {
+        this.jarPaths = List.copyOf(jarPaths);
+    }
+
+    /**
+     * @return paths of the classpath entries the state belongs to
+     */
+    List<String> getJarPaths() {
+        return jarPaths;
+    }
+
+    /**
+     * @return true iff no class has been reached yet
+     */
+    boolean isEmpty() {
+        return references.isEmpty();
+    }
+
+    /**
+     * Brings the state up to date with the current sources of the classpath entries
+     * @param currentSources sources of the classpath entries in classpath order
+     * @param classpath source of the references of classes on the current classpath
+     * @return number of kept classes whose references changed
+     * @throws IOException if an I/O error has occurred while reading classes
+     */
+    int update(List<ClassSource> currentSources, ReferenceSource classpath) throws IOException {
+        this.classpath = classpath;
+        if (currentSources.size() != sources.size()) {
+            references.clear();
+            results.clear();
+            sources = List.copyOf(currentSources);
+            return 0;
+        }
+        Set<String> classNames = new HashSet<>();
+        for (int i = 0; i < sources.size(); i++) {
+            if (sources.get(i) != currentSources.get(i)) {
+                ClasspathIndex.collectClassNames(sources.get(i), classNames);
+                ClasspathIndex.collectClassNames(currentSources.get(i), classNames);
+            }
+        }
+        sources = List.copyOf(currentSources);
+        int changed = 0;
+        for (String internalName : classNames) {
+            String className = internalName.replace('/', '.');
+            if (!references.containsKey(className)) continue;
+            Set<String> classes = classpath.referencesOf(className);
+            if (!Objects.equals(classes, references.put(className, classes))) changed++;
+        }
+        if (changed > 0) results.clear();
+        return changed;
+    }
+
+    /**
+     * @param call call and its arguments
+     * @return result kept from the same call or null if there is none
+     */
+    Object getResult(List<Object> call) {
+        return results.get(call);
+    }
+
+    /**
+     * @param call call and its arguments
+     * @param result result of the call, kept until a reference changes
+     */
+    void putResult(List<Object> call, Object result) {
+        results.put(call, result);
+    }
+
+    @Override
+    public Set<String> referencesOf(String className) throws IOException {
+        Set<String> classes = references.get(className);
+        if (classes == null && !references.containsKey(className)) {
+            classes = classpath.referencesOf(className);
+            references.put(className, classes);
+        }
+        return classes;
+    }
+}
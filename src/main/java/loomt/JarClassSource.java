@@ -0,0 +1,232 @@
+package loomt;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipException;
+
+/**
+ * Open JAR or jmod file together with an index of its class entries.
+ * The file is read as a {@link ZipArchive}, falling back to {@link JarFile} for archives it does not support,
+ * e.g. zip64 ones. A large archive is memory-mapped, and a read failing because the file was truncated while
+ * mapped is reported as an {@link IOException}, so a stale source can be dropped and opened again.
+ * Spring Boot and WAR style fat JARs are supported: classes under {@code BOOT-INF/classes/} and
+ * {@code WEB-INF/classes/} are indexed by their plain names, and the JARs under {@code BOOT-INF/lib/} and
+ * {@code WEB-INF/lib/} become {@linkplain #getNestedSources() nested sources} read in place. Nested JARs stored
+ * without compression, as Spring Boot requires, are archives backed by the mapping of the fat JAR.
+ * jmod files are zip files with a short header, their classes live under {@code classes/}.
+ */
+class JarClassSource extends ClassSource {
+    private static final List<String> FAT_JAR_CLASS_DIRECTORIES = List.of("BOOT-INF/classes/", "WEB-INF/classes/");
+    private static final List<String> FAT_JAR_LIB_DIRECTORIES = List.of("BOOT-INF/lib/", "WEB-INF/lib/");
+    private static final String JMOD_CLASS_DIRECTORY = "classes/";
+
+    // null for JARs nested in a fat JAR
+    private final File file;
+    private final long size;
+    private final long lastModified;
+    private final String identity;
+    // entry name of a nested JAR in its fat JAR or null
+    private final String outerEntryName;
+    // fat JAR of a nested JAR or null
+    private final JarClassSource outer;
+    // exactly one of archive and jar is set
+    private final ZipArchive archive;
+    private final JarFile jar;
+    private final Map<String, String> classes = new HashMap<>();
+    private final List<ClassSource> nestedSources = new ArrayList<>();
+
+    /**
+     * Opens a JAR file and indexes its class entries
+     * @param file JAR or jmod file
+     * @throws IOException if an I/O error has occurred while reading the jar file
+     */
+    JarClassSource(File file) throws IOException {
+        this.file = file;
+        // read the attributes first, so a concurrent modification makes the index stale rather than wrong
+        this.size = file.length();
+        this.lastModified = file.lastModified();
+        this.identity = file.getCanonicalPath() + '\n' + size + '\n' + lastModified;
+        this.outer = null;
+        this.outerEntryName = null;
+        // the zip readers skip the jmod header like any data preceding a zip archive
+        ZipArchive archive;
+        try {
+            archive = ZipArchive.open(file.toPath());
+        } catch (ZipException e) {
+            archive = null;
+        } catch (InternalError e) {
+            throw mappingFailed(e);
+        }
+        this.archive = archive;
+        this.jar = archive == null ? new JarFile(file) : null;
+        try {
+            indexEntries(file.getName().endsWith(".jmod"));
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (InternalError e) {
+            close();
+            throw mappingFailed(e);
+        }
+    }
+
+    /**
+     * Indexes a JAR stored in a fat JAR
+     * @param outer fat JAR
+     * @param entryName entry name of the nested JAR
+     * @param archive nested archive backed by the mapping of the fat JAR
+     */
+    private JarClassSource(JarClassSource outer, String entryName, ZipArchive archive) throws IOException {
+        this.file = null;
+        this.size = 0;
+        this.lastModified = 0;
+        this.identity = outer.getIdentity() + "\n!/" + entryName;
+        this.outer = outer;
+        this.outerEntryName = entryName;
+        this.archive = archive;
+        this.jar = null;
+        indexEntries(false);
+    }
+
+    private void indexEntries(boolean jmod) throws IOException {
+        if (archive != null) {
+            for (int i = 0; i < archive.size(); i++) {
+                indexEntry(archive.name(i), jmod, i);
+            }
+        } else {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                indexEntry(entries.nextElement().getName(), jmod, -1);
+            }
+        }
+    }
+
+    private void indexEntry(String entryName, boolean jmod, int index) throws IOException {
+        String name = jmod ? jmodInternalName(entryName) : jarInternalName(entryName);
+        if (name != null) {
+            classes.putIfAbsent(name, entryName);
+        } else if (!jmod && outer == null && isNestedJar(entryName)) {
+            ClassSource nested = null;
+            if (index >= 0 && archive.isStored(index)) {
+                try {
+                    nested = new JarClassSource(this, entryName, archive.openNested(index));
+                } catch (ZipException e) {
+                    // not a supported archive, stream it
+                }
+            }
+            nestedSources.add(nested != null ? nested : new NestedJarClassSource(this, entryName));
+        }
+    }
+
+    private static String jarInternalName(String entryName) {
+        for (String directory : FAT_JAR_CLASS_DIRECTORIES) {
+            if (entryName.startsWith(directory))
+                return internalName(entryName.substring(directory.length()));
+        }
+        return internalName(entryName);
+    }
+
+    private static String jmodInternalName(String entryName) {
+        if (!entryName.startsWith(JMOD_CLASS_DIRECTORY))
+            return null;
+        return internalName(entryName.substring(JMOD_CLASS_DIRECTORY.length()));
+    }
+
+    private static boolean isNestedJar(String entryName) {
+        for (String directory : FAT_JAR_LIB_DIRECTORIES) {
+            if (entryName.startsWith(directory) && entryName.endsWith(".jar")
+                    && entryName.indexOf('/', directory.length()) < 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    boolean isStale() {
+        if (outer != null) return outer.isStale();
+        return !file.isFile() || file.length() != size || file.lastModified() != lastModified;
+    }
+
+    @Override
+    Map<String, String> getClasses() {
+        return classes;
+    }
+
+    @Override
+    String getOuterEntryName() {
+        return outerEntryName;
+    }
+
+    // both zip readers know the checksums from the central directory without reading any entry
+    @Override
+    Map<String, Long> getChecksums(Collection<String> entryNames) throws IOException {
+        Map<String, Long> checksums = new HashMap<>();
+        for (String entryName : entryNames) {
+            if (archive != null) {
+                int index = find(entryName);
+                checksums.put(entryName, checksum(archive.crc(index), archive.uncompressedSize(index)));
+            } else {
+                JarEntry entry = jar.getJarEntry(entryName);
+                if (entry == null) throw new FileNotFoundException(entryName);
+                checksums.put(entryName, checksum(entry.getCrc(), entry.getSize()));
+            }
+        }
+        return checksums;
+    }
+
+    @Override
+    InputStream open(String entryName) throws IOException {
+        if (archive != null) {
+            int index = find(entryName);
+            try {
+                return archive.open(index);
+            } catch (InternalError e) {
+                throw mappingFailed(e);
+            }
+        }
+        JarEntry entry = jar.getJarEntry(entryName);
+        if (entry == null) throw new FileNotFoundException(entryName);
+        return jar.getInputStream(entry);
+    }
+
+    private int find(String entryName) throws IOException {
+        try {
+            int index = archive.find(entryName);
+            if (index < 0) throw new FileNotFoundException(entryName);
+            return index;
+        } catch (InternalError e) {
+            throw mappingFailed(e);
+        }
+    }
+
+    /**
+     * The fault of a mapped read may only be raised at the next safepoint, so the whole method reading the mapping
+     * has to catch it, not just the read itself
+     * @return exception reporting a failed read of the mapping, e.g. because the file was truncated since
+     */
+    private IOException mappingFailed(InternalError e) {
+        File mapped = outer != null ? outer.file : file;
+        return new IOException("JAR file changed while it was read: " + mapped, e);
+    }
+
+    @Override
+    List<ClassSource> getNestedSources() {
+        return nestedSources;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // small archives live on the heap, the mapping of a large one is released by the garbage collector
+        if (jar != null) jar.close();
+    }
+}
@@ -1,29 +1,398 @@
 package loomt;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
-import java.util.List;
-import java.util.Optional;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
 
 public class Main {
     public static void main(String[] args) {
-        if (args.length < 2 || (args[0].equals("--help") || args[0].equals("-h"))) {
-            System.out.println("Usage: DependencyChecker <main-class> [<jar-path>]+");
-            System.out.println("Example: ./DependencyChecker \"com.name.class\" \"moduleA\" \"moduleB\" \"moduleC\"");
+        DependencyChecker checker = new DependencyChecker();
+        int argIndex = 0;
+        String option = null;
+        boolean reportAll = false;
+        boolean classpathUsage = false;
+        boolean duplicates = false;
+        List<String> whyClassNames = new ArrayList<>();
+        Integer daemonPort = null;
+        Integer connectPort = null;
+        boolean shutdown = false;
+        List<String> rootClassNames = new ArrayList<>();
+        Path rootsFile = null;
+        String platformImage = null;
+        List<String> excludedPackages = new ArrayList<>();
+        List<String> includedPackages = new ArrayList<>();
+        GraphFormat exportFormat = null;
+        GraphLevel exportLevel = GraphLevel.CLASS;
+        Path exportFile = null;
+        try {
+            // parse options preceding the main class
+            while (argIndex < args.length && args[argIndex].startsWith("--") && !args[argIndex].equals("--help")) {
+                option = args[argIndex++];
+                switch (option) {
+                    case "--parallelism" -> checker.setParallelism(Integer.parseInt(args[argIndex++]));
+                    case "--mode" -> checker.setAnalysisMode(
+                            AnalysisMode.valueOf(args[argIndex++].toUpperCase(Locale.ROOT)));
+                    case "--all" -> reportAll = true;
+                    case "--classpath-usage" -> classpathUsage = true;
+                    case "--duplicates" -> duplicates = true;
+                    case "--why" -> whyClassNames.add(args[argIndex++]);
+                    case "--export" -> exportFormat = GraphFormat.valueOf(args[argIndex++].toUpperCase(Locale.ROOT));
+                    case "--export-level" -> exportLevel = GraphLevel.valueOf(
+                            args[argIndex++].toUpperCase(Locale.ROOT));
+                    case "--export-file" -> exportFile = Path.of(args[argIndex++]);
+                    case "--cache-dir" -> checker.setCacheDirectory(Path.of(args[argIndex++]));
+                    case "--reference-memory" -> checker.setReferenceCacheSize(
+                            Long.parseLong(args[argIndex++]) * 1024 * 1024);
+                    case "--daemon" -> daemonPort = Integer.parseInt(args[argIndex++]);
+                    case "--incremental" -> checker.setIncremental(true);
+                    case "--connect" -> connectPort = Integer.parseInt(args[argIndex++]);
+                    case "--shutdown" -> shutdown = true;
+                    case "--root" -> rootClassNames.add(args[argIndex++]);
+                    case "--roots-file" -> rootsFile = Path.of(args[argIndex++]);
+                    case "--platform-image" -> platformImage = args[argIndex++];
+                    case "--exclude-package" -> excludedPackages.add(args[argIndex++]);
+                    case "--include-package" -> includedPackages.add(args[argIndex++]);
+                    case "--stats" -> checker.setMetricsListener(metricsPrinter(args[argIndex++], System.err));
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            if (platformImage != null || !excludedPackages.isEmpty() || !includedPackages.isEmpty()) {
+                checker.setPlatformClassFilter(platformClassFilter(platformImage, excludedPackages, includedPackages));
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            System.err.println(e instanceof IndexOutOfBoundsException
+                    ? "Missing value of option " + option : e.getMessage());
+            printUsage();
             return;
         }
 
-        String mainClassName = args[0];
-        List<String> jarPaths = List.of(args).subList(1, args.length);
-        DependencyChecker checker = new DependencyChecker();
-        try {
-            Optional<String> missingClass = checker.checkDependencies(mainClassName, jarPaths);
-            if (missingClass.isEmpty()) {
-                System.out.println("All required dependencies are satisfied.");
+        if (daemonPort != null) {
+            runDaemon(checker, daemonPort);
+            return;
+        }
+        if (connectPort != null && shutdown) {
+            sendToDaemon(connectPort, List.of(DependencyCheckerDaemon.SHUTDOWN));
+            return;
+        }
+
+        if (duplicates) {
+            // all remaining arguments are JAR files
+            if (argIndex == args.length || connectPort != null) {
+                printUsage();
+                return;
+            }
+            try (checker) {
+                printDuplicateClasses(checker, List.of(args).subList(argIndex, args.length), System.out);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (!rootClassNames.isEmpty() || rootsFile != null) {
+            // batch mode, all remaining arguments are JAR files
+            if (argIndex == args.length || connectPort != null) {
+                printUsage();
+                return;
+            }
+            try (checker) {
+                if (rootsFile != null) {
+                    for (String line : Files.readAllLines(rootsFile)) {
+                        if (!line.isBlank() && !line.startsWith("#")) rootClassNames.add(line.strip());
+                    }
+                }
+                List<String> jarPaths = List.of(args).subList(argIndex, args.length);
+                if (exportFormat != null) {
+                    exportGraph(checker, rootClassNames, jarPaths, exportFormat, exportLevel, exportFile);
+                } else if (!whyClassNames.isEmpty()) {
+                    explain(checker, rootClassNames, jarPaths, whyClassNames, System.out);
+                } else if (classpathUsage) {
+                    checkClasspathUsage(checker, rootClassNames, jarPaths, System.out);
+                } else {
+                    checkBatch(checker, reportAll, rootClassNames, jarPaths, System.out);
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+
+        if (args.length - argIndex < 2 || (args[argIndex].equals("--help") || args[argIndex].equals("-h"))) {
+            printUsage();
+            return;
+        }
+
+        String mainClassName = args[argIndex];
+        List<String> jarPaths = List.of(args).subList(argIndex + 1, args.length);
+        if (connectPort != null && (classpathUsage || !whyClassNames.isEmpty() || exportFormat != null)) {
+            printUsage();
+            return;
+        }
+        if (connectPort != null) {
+            List<String> request = new ArrayList<>();
+            request.add(reportAll ? DependencyCheckerDaemon.CHECK_ALL : DependencyCheckerDaemon.CHECK);
+            request.add(mainClassName);
+            // the daemon may run in another working directory
+            for (String jarPath : jarPaths) {
+                request.add(new File(jarPath).getAbsolutePath());
+            }
+            sendToDaemon(connectPort, request);
+            return;
+        }
+        try (checker) {
+            if (exportFormat != null) {
+                exportGraph(checker, List.of(mainClassName), jarPaths, exportFormat, exportLevel, exportFile);
+            } else if (!whyClassNames.isEmpty()) {
+                explain(checker, List.of(mainClassName), jarPaths, whyClassNames, System.out);
+            } else if (classpathUsage) {
+                checkClasspathUsage(checker, List.of(mainClassName), jarPaths, System.out);
             } else {
-                System.out.println("Class not found: " + missingClass.get());
+                check(checker, reportAll, mainClassName, jarPaths, System.out);
             }
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
     }
+
+    /**
+     * Checks the dependencies of a main class and prints the result
+     * @param checker checker to use
+     * @param reportAll whether to report all missing classes instead of the first one
+     * @param mainClassName name of main class
+     * @param jarPaths paths to jar files
+     * @param out stream to print the result to
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    static void check(DependencyChecker checker, boolean reportAll, String mainClassName, List<String> jarPaths,
+                      PrintStream out) throws IOException {
+        if (reportAll) {
+            List<MissingClass> missingClasses = checker.findMissingClasses(mainClassName, jarPaths);
+            if (missingClasses.isEmpty()) {
+                out.println("All required dependencies are satisfied.");
+            }
+            for (MissingClass missingClass : missingClasses) {
+                out.println("Class not found: " + missingClass);
+            }
+            return;
+        }
+        Optional<String> missingClass = checker.checkDependencies(mainClassName, jarPaths);
+        if (missingClass.isEmpty()) {
+            out.println("All required dependencies are satisfied.");
+        } else {
+            out.println("Class not found: " + missingClass.get());
+        }
+    }
+
+    /**
+     * Checks the dependencies of many root classes against the same classpath and prints the result of each
+     * @param checker checker to use
+     * @param reportAll whether to report all missing classes of each root instead of the first one
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @param out stream to print the result to
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    static void checkBatch(DependencyChecker checker, boolean reportAll, List<String> rootClassNames,
+                           List<String> jarPaths, PrintStream out) throws IOException {
+        Map<String, List<MissingClass>> missingClasses = checker.findMissingClasses(rootClassNames, jarPaths);
+        for (Map.Entry<String, List<MissingClass>> entry : missingClasses.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                out.println(entry.getKey() + ": All required dependencies are satisfied.");
+                continue;
+            }
+            for (MissingClass missingClass : reportAll ? entry.getValue() : entry.getValue().subList(0, 1)) {
+                out.println(entry.getKey() + ": Class not found: " + missingClass);
+            }
+        }
+    }
+
+    private static void runDaemon(DependencyChecker checker, int port) {
+        try (checker; DependencyCheckerDaemon daemon = new DependencyCheckerDaemon(checker, port)) {
+            System.out.println("Daemon listening on port " + daemon.getPort());
+            daemon.serve();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    private static void sendToDaemon(int port, List<String> request) {
+        try {
+            DependencyCheckerDaemon.send(port, request).forEach(System.out::println);
+        } catch (IOException e) {
+            System.err.println("Cannot reach daemon on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finds the JAR files the root classes need and prints the required and unused ones, after any missing classes
+     * @param checker checker to use
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @param out stream to print the result to
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    static void checkClasspathUsage(DependencyChecker checker, List<String> rootClassNames, List<String> jarPaths,
+                                    PrintStream out) throws IOException {
+        ClasspathUsage usage = checker.findClasspathUsage(rootClassNames, jarPaths);
+        for (Map.Entry<String, List<MissingClass>> entry : usage.missingClasses().entrySet()) {
+            for (MissingClass missingClass : entry.getValue()) {
+                out.println(entry.getKey() + ": Class not found: " + missingClass);
+            }
+        }
+        Map<String, Integer> classCounts = new HashMap<>();
+        for (String jarPath : usage.classSources().values()) {
+            classCounts.merge(jarPath, 1, Integer::sum);
+        }
+        out.println("Required JAR files:");
+        for (String jarPath : usage.requiredJars()) {
+            out.println("  " + jarPath + " (" + classCounts.get(jarPath) + " classes)");
+        }
+        out.println("Unused JAR files:");
+        for (String jarPath : usage.unusedJars()) {
+            out.println("  " + jarPath);
+        }
+    }
+
+    /**
+     * Prints why the root classes need each of the given classes: the shortest reference chain from a root
+     * and all classes and JAR files referencing the class directly
+     * @param checker checker to use
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @param classNames classes to explain
+     * @param out stream to print the result to
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    static void explain(DependencyChecker checker, List<String> rootClassNames, List<String> jarPaths,
+                        List<String> classNames, PrintStream out) throws IOException {
+        ReferenceGraph graph = checker.buildReferenceGraph(rootClassNames, jarPaths);
+        for (String className : classNames) {
+            if (!graph.contains(className)) {
+                out.println(className + " is not needed by the root classes");
+                continue;
+            }
+            List<String> chain = new ArrayList<>();
+            for (String chainClassName : graph.findShortestChain(className)) {
+                String jarPath = graph.getJarPath(chainClassName);
+                chain.add(chainClassName + (jarPath == null ? " (missing)" : " (" + jarPath + ")"));
+            }
+            out.println(className + " is needed through " + String.join(" -> ", chain));
+            List<String> referencingClasses = graph.getReferencingClasses(className);
+            if (!referencingClasses.isEmpty()) {
+                out.println("  referenced by " + String.join(", ", referencingClasses));
+                out.println("  in " + String.join(", ", graph.getReferencingJars(className)));
+            }
+        }
+    }
+
+    /**
+     * Writes the reference graph of the root classes to a file or the standard output
+     * @param checker checker to use
+     * @param rootClassNames names of the root classes
+     * @param jarPaths paths to jar files
+     * @param format output format
+     * @param level granularity of the nodes
+     * @param file file to write the graph to or null for the standard output
+     * @throws IOException if an I/O error has occurred while reading jar files or writing the graph
+     */
+    static void exportGraph(DependencyChecker checker, List<String> rootClassNames, List<String> jarPaths,
+                            GraphFormat format, GraphLevel level, Path file) throws IOException {
+        if (file != null) {
+            try (Writer out = Files.newBufferedWriter(file)) {
+                checker.exportGraph(rootClassNames, jarPaths, out, format, level);
+            }
+        } else {
+            // the standard output is flushed but stays open
+            checker.exportGraph(rootClassNames, jarPaths,
+                    new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), format, level);
+        }
+    }
+
+    /**
+     * Prints the classes defined by more than one classpath entry
+     * @param checker checker to use
+     * @param jarPaths paths to jar files
+     * @param out stream to print the result to
+     * @throws IOException if an I/O error has occurred while reading jar files
+     */
+    static void printDuplicateClasses(DependencyChecker checker, List<String> jarPaths, PrintStream out)
+            throws IOException {
+        List<DuplicateClass> duplicates = checker.findDuplicateClasses(jarPaths);
+        if (duplicates.isEmpty()) {
+            out.println("No duplicate classes.");
+        }
+        for (DuplicateClass duplicate : duplicates) {
+            out.println("Duplicate class: " + duplicate);
+        }
+    }
+
+    /**
+     * @param format {@code summary} for a human-readable summary or {@code json} for a JSON object per line
+     * @param out stream to print the metrics of every check to
+     * @return listener printing the metrics
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    static MetricsListener metricsPrinter(String format, PrintStream out) {
+        return switch (format) {
+            case "summary" -> metrics -> out.println(metrics.toSummary());
+            case "json" -> metrics -> out.println(metrics.toJson());
+            default -> throw new IllegalArgumentException("Unknown stats format: " + format);
+        };
+    }
+
+    /**
+     * @param platformImage home directory of the JDK whose packages are platform classes, {@code current} for the
+     * running JDK or null for the well-known standard library prefixes
+     * @param excludedPackages additional package patterns of platform classes
+     * @param includedPackages package patterns of classes to find on the classpath anyway
+     * @return platform class filter
+     * @throws IOException if the runtime image can not be read
+     */
+    static PlatformClassFilter platformClassFilter(String platformImage, List<String> excludedPackages,
+                                                   List<String> includedPackages) throws IOException {
+        List<String> excluded = new ArrayList<>(platformImage == null
+                ? PlatformClassFilter.DEFAULT_PLATFORM_PACKAGES
+                : PlatformClassFilter.runtimeImagePackages(
+                        platformImage.equals("current") ? null : Path.of(platformImage)));
+        excluded.addAll(excludedPackages);
+        return PlatformClassFilter.of(excluded, includedPackages);
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: DependencyChecker [<option>]* <main-class> [<jar-path>]+");
+        System.out.println("       DependencyChecker --duplicates [<jar-path>]+");
+        System.out.println("       DependencyChecker [<option>]* (--root <class> | --roots-file <file>)+ [<jar-path>]+");
+        System.out.println("Options:");
+        System.out.println("  --parallelism <n>    number of threads analyzing classes (default 1)");
+        System.out.println("  --mode precise|fast  precise instruction analysis or fast constant pool scan (default precise)");
+        System.out.println("  --all                report all missing classes instead of the first one");
+        System.out.println("  --classpath-usage    print the JAR files the roots need and the ones they do not use");
+        System.out.println("  --why <class>        print why the roots need the class, can be repeated");
+        System.out.println("  --export dot|graphml|jsonl  write the reference graph of the roots instead of checking them");
+        System.out.println("  --export-level class|package|jar  nodes of the exported graph (default class)");
+        System.out.println("  --export-file <file> write the exported graph to the file instead of standard output");
+        System.out.println("  --cache-dir <dir>    keep analyzed JAR files in a cache to skip them in later runs");
+        System.out.println("  --reference-memory <mb> memory kept by analyzed references (default 1/8 of the heap)");
+        System.out.println("  --daemon <port>      keep running and answer checks sent with --connect, 0 picks a free port");
+        System.out.println("  --incremental        with --daemon, keep the reachability state and only recheck changed JAR files");
+        System.out.println("  --connect <port>     send the check to a running daemon");
+        System.out.println("  --shutdown           with --connect, stop the daemon");
+        System.out.println("  --root <class>       check this root class, can be repeated to check many roots in one run");
+        System.out.println("  --roots-file <file>  check the root classes listed in the file, one per line");
+        System.out.println("  --platform-image <java-home>|current  treat exactly the packages of this JDK as platform classes");
+        System.out.println("  --exclude-package <pattern>  also treat classes of com.name or com.name.* as platform classes");
+        System.out.println("  --include-package <pattern>  look up classes of com.name or com.name.* on the classpath anyway");
+        System.out.println("  --stats summary|json print timings and counters of every check to standard error");
+        System.out.println("Example: ./DependencyChecker \"com.name.class\" \"moduleA\" \"moduleB\" \"moduleC\"");
+    }
 }
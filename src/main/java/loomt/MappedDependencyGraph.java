@@ -0,0 +1,270 @@
+package loomt;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Persistent reference lookup of one classpath entry: the class reference graph of all its classes stored in a
+ * compact binary file and read through a memory mapping, so loading it needs no deserialisation and class names stay
+ * off the heap until they are requested. A check only decodes the references of the classes it reaches,
+ * the traversal itself runs on the interned ids of {@link ClassGraphTraversal}.
+ *
+ * <p>Every class name is stored once in a string table sorted by its UTF-8 bytes, its position in the
+ * table is the integer id of the class. References of each class are stored as id arrays in
+ * compressed sparse row form: the references of class {@code i} are
+ * {@code edges[edgeOffsets[i] .. edgeOffsets[i + 1])}.
+ *
+ * <p>File layout, all integers big-endian:
+ * <pre>
+ * int magic, int version, int nodeCount, int edgeCount
+ * int[nodeCount + 1] stringOffsets  (relative to the start of the string data)
+ * int[nodeCount + 1] edgeOffsets
+ * int[edgeCount]     edges
+ * byte[nodeCount]    defined flags (1 iff the class itself is part of the graph, not only referenced)
+ * byte[]             UTF-8 string data
+ * </pre>
+ */
+class MappedDependencyGraph {
+    private static final int MAGIC = 0x44434752; // "DCGR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    private final int edgeCount;
+    private final int stringOffsetsStart;
+    private final int edgeOffsetsStart;
+    private final int edgesStart;
+    private final int definedStart;
+    private final int stringsStart;
+
+    /**
+     * Checks the whole layout once, so a truncated or corrupted file is rejected here
+     * instead of failing with an index out of bounds while a check reads it
+     * @param buffer file content
+     * @throws IOException if the content is not a valid graph file
+     */
+    private MappedDependencyGraph(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a dependency graph file");
+        }
+        nodeCount = buffer.getInt(8);
+        edgeCount = buffer.getInt(12);
+        // computed in longs, corrupted counts must not overflow into a plausible layout
+        long stringsOffset = HEADER_SIZE + 2 * ((long) nodeCount + 1) * Integer.BYTES
+                + (long) edgeCount * Integer.BYTES + nodeCount;
+        if (nodeCount < 0 || edgeCount < 0 || stringsOffset > buffer.capacity()) {
+            throw new IOException("Truncated dependency graph file");
+        }
+        stringOffsetsStart = HEADER_SIZE;
+        edgeOffsetsStart = stringOffsetsStart + (nodeCount + 1) * Integer.BYTES;
+        edgesStart = edgeOffsetsStart + (nodeCount + 1) * Integer.BYTES;
+        definedStart = edgesStart + edgeCount * Integer.BYTES;
+        stringsStart = (int) stringsOffset;
+        checkOffsets(stringOffsetsStart, buffer.capacity() - stringsStart);
+        checkOffsets(edgeOffsetsStart, edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int referenced = buffer.getInt(edgesStart + i * Integer.BYTES);
+            if (referenced < 0 || referenced >= nodeCount) {
+                throw new IOException("Corrupted dependency graph file: class id " + referenced + " out of range");
+            }
+        }
+    }
+
+    /**
+     * @param start position of an offset table of {@code nodeCount + 1} entries
+     * @param end value the last offset must have
+     * @throws IOException if the table does not start at 0, decreases or does not end at the given value
+     */
+    private void checkOffsets(int start, int end) throws IOException {
+        int previous = 0;
+        for (int i = 0; i <= nodeCount; i++) {
+            int offset = buffer.getInt(start + i * Integer.BYTES);
+            if (offset < previous || (i == 0 && offset != 0)) {
+                throw new IOException("Corrupted dependency graph file: invalid offset " + offset);
+            }
+            previous = offset;
+        }
+        if (previous != end) {
+            throw new IOException("Truncated dependency graph file");
+        }
+    }
+
+    /**
+     * Maps a graph file into memory
+     * @param file graph file
+     * @return graph backed by the file
+     * @throws IOException if an I/O error has occurred or the file is not a valid graph file
+     */
+    static MappedDependencyGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedDependencyGraph(buffer);
+        }
+    }
+
+    /**
+     * Writes a class reference graph to a file
+     * @param file file to write
+     * @param references referenced classes of every class of the graph
+     * @throws IOException if an I/O error has occurred
+     */
+    static void write(Path file, Map<String, Set<String>> references) throws IOException {
+        // intern all names into one table sorted by their UTF-8 bytes
+        Map<String, byte[]> encoded = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : references.entrySet()) {
+            encoded.computeIfAbsent(entry.getKey(), n -> n.getBytes(StandardCharsets.UTF_8));
+            for (String referenced : entry.getValue())
+                encoded.computeIfAbsent(referenced, n -> n.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] names = encoded.keySet().toArray(new String[0]);
+        Arrays.sort(names, (a, b) -> Arrays.compareUnsigned(encoded.get(a), encoded.get(b)));
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+
+        int edgeCount = references.values().stream().mapToInt(Set::size).sum();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names.length);
+            out.writeInt(edgeCount);
+            int stringOffset = 0;
+            for (String name : names) {
+                out.writeInt(stringOffset);
+                stringOffset += encoded.get(name).length;
+            }
+            out.writeInt(stringOffset);
+            int edgeOffset = 0;
+            for (String name : names) {
+                out.writeInt(edgeOffset);
+                Set<String> classes = references.get(name);
+                if (classes != null) edgeOffset += classes.size();
+            }
+            out.writeInt(edgeOffset);
+            for (String name : names) {
+                Set<String> classes = references.get(name);
+                if (classes == null) continue;
+                // sorted ids keep the file deterministic
+                int[] edges = classes.stream().mapToInt(ids::get).sorted().toArray();
+                for (int edge : edges)
+                    out.writeInt(edge);
+            }
+            for (String name : names)
+                out.writeByte(references.containsKey(name) ? 1 : 0);
+            for (String name : names)
+                out.write(encoded.get(name));
+        }
+    }
+
+    /**
+     * @return number of classes in the graph, including classes that are only referenced
+     */
+    int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Binary searches the string table for a class
+     * @param className class name
+     * @return id of the class or -1 if the graph does not contain it
+     */
+    int find(String className) {
+        byte[] key = className.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareName(middle, key);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * @param id class id
+     * @return name of the class
+     */
+    String name(int id) {
+        int start = stringsStart + stringOffset(id);
+        byte[] bytes = new byte[stringOffset(id + 1) - stringOffset(id)];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param id class id
+     * @return true iff the class is defined in the graph, false if it is only referenced
+     */
+    boolean isDefined(int id) {
+        return buffer.get(definedStart + id) != 0;
+    }
+
+    /**
+     * @param id class id
+     * @return number of classes referenced by the class
+     */
+    int referenceCount(int id) {
+        return edgeOffset(id + 1) - edgeOffset(id);
+    }
+
+    /**
+     * @param id class id
+     * @param index index of the reference, less than {@link #referenceCount(int)}
+     * @return id of the referenced class
+     */
+    int reference(int id, int index) {
+        return buffer.getInt(edgesStart + (edgeOffset(id) + index) * Integer.BYTES);
+    }
+
+    /**
+     * @param className class name
+     * @return names of the classes referenced by the class or null if the class is not defined in the graph
+     */
+    Set<String> referencesOf(String className) {
+        int id = find(className);
+        if (id < 0 || !isDefined(id)) {
+            return null;
+        }
+        int count = referenceCount(id);
+        Set<String> classes = new HashSet<>(Math.max(16, count * 2));
+        for (int i = 0; i < count; i++)
+            classes.add(name(reference(id, i)));
+        return classes;
+    }
+
+    private int stringOffset(int id) {
+        return buffer.getInt(stringOffsetsStart + id * Integer.BYTES);
+    }
+
+    private int edgeOffset(int id) {
+        return buffer.getInt(edgeOffsetsStart + id * Integer.BYTES);
+    }
+
+    /**
+     * Compares the stored name of a class with a UTF-8 encoded name byte by byte, as unsigned values
+     */
+    private int compareName(int id, byte[] key) {
+        int start = stringsStart + stringOffset(id);
+        int length = stringOffset(id + 1) - stringOffset(id);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Byte.compareUnsigned(buffer.get(start + i), key[i]);
+            if (comparison != 0) return comparison;
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,13 @@
+package loomt;
+
+/**
+ * Receives the metrics of every completed call of a {@link DependencyChecker}
+ */
+@FunctionalInterface
+public interface MetricsListener {
+    /**
+     * Called on the thread that called the checker, after the result is computed
+     * @param metrics timings and counters of the call
+     */
+    void checkCompleted(CheckMetrics metrics);
+}
@@ -0,0 +1,90 @@
+package loomt;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the timings and counters of the current call of a {@link DependencyChecker}.
+ * Read, parse and cache counters are updated concurrently by pipeline threads, so they are kept in adders,
+ * the rest is only touched by the calling thread.
+ */
+class MetricsRecorder {
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder cacheNanos = new LongAdder();
+    private final LongAdder classesParsed = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder referenceHits = new LongAdder();
+    private final LongAdder referenceMisses = new LongAdder();
+    private final LongAdder graphCacheHits = new LongAdder();
+    private final LongAdder graphCacheMisses = new LongAdder();
+    private long indexNanos;
+    private int sourcesOpened;
+
+    /**
+     * Starts recording a new call
+     */
+    void reset() {
+        for (LongAdder adder : new LongAdder[]{readNanos, parseNanos, cacheNanos, classesParsed, bytesRead,
+                referenceHits, referenceMisses, graphCacheHits, graphCacheMisses}) {
+            adder.reset();
+        }
+        indexNanos = 0;
+        sourcesOpened = 0;
+    }
+
+    void addIndexTime(long nanos) {
+        indexNanos += nanos;
+    }
+
+    void sourceOpened() {
+        sourcesOpened++;
+    }
+
+    /**
+     * @param nanos time spent reading a class file
+     * @param bytes size of the class file
+     */
+    void classRead(long nanos, long bytes) {
+        readNanos.add(nanos);
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * @param nanos time spent extracting the references of a class file
+     */
+    void classParsed(long nanos) {
+        parseNanos.add(nanos);
+        classesParsed.increment();
+    }
+
+    void addCacheTime(long nanos) {
+        cacheNanos.add(nanos);
+    }
+
+    /**
+     * @param hit whether the in-memory reference cache had the references of a class
+     */
+    void referenceLookup(boolean hit) {
+        (hit ? referenceHits : referenceMisses).increment();
+    }
+
+    /**
+     * @param hit whether the reference graph of a classpath entry was cached
+     */
+    void graphLookup(boolean hit) {
+        (hit ? graphCacheHits : graphCacheMisses).increment();
+    }
+
+    /**
+     * @param rootCount number of root classes checked
+     * @param totalNanos wall-clock time of the whole call
+     * @param traversal finished traversal of the call
+     * @return metrics recorded since the last reset
+     */
+    CheckMetrics snapshot(int rootCount, long totalNanos, ClassGraphTraversal traversal) {
+        return new CheckMetrics(rootCount, totalNanos, indexNanos, readNanos.sum(), parseNanos.sum(),
+                cacheNanos.sum(), sourcesOpened, traversal.getVisitedCount(), classesParsed.sum(), bytesRead.sum(),
+                referenceHits.sum(), referenceMisses.sum(), graphCacheHits.sum(), graphCacheMisses.sum(),
+                traversal.getFrontierPeak());
+    }
+}
@@ -0,0 +1,13 @@
+package loomt;
+
+/**
+ * Class required by the analyzed program but not found in any of the JAR files
+ * @param className name of the missing class
+ * @param referencedBy name of the class that references the missing class, null if the main class itself is missing
+ */
+public record MissingClass(String className, String referencedBy) {
+    @Override
+    public String toString() {
+        return referencedBy == null ? className : className + " (referenced by " + referencedBy + ")";
+    }
+}
@@ -0,0 +1,115 @@
+package loomt;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Compressed JAR file nested in a fat JAR, e.g. a library under {@code WEB-INF/lib/}.
+ * The nested JAR is read in place as a zip stream of its outer entry, it is never extracted to disk.
+ * A zip stream has no random access, so opening a single class scans the nested JAR up to it and
+ * classes should rather be read in bulk with {@link #forEachClass}.
+ */
+class NestedJarClassSource extends ClassSource {
+    private final JarClassSource outer;
+    private final String entryName;
+    private final Map<String, String> classes = new HashMap<>();
+
+    /**
+     * Indexes the class entries of a nested JAR in one pass over its stream
+     * @param outer fat JAR containing the nested JAR, which also owns the open file
+     * @param entryName entry name of the nested JAR
+     * @throws IOException if an I/O error has occurred while reading the nested jar
+     */
+    NestedJarClassSource(JarClassSource outer, String entryName) throws IOException {
+        this.outer = outer;
+        this.entryName = entryName;
+        try (ZipInputStream in = new ZipInputStream(outer.open(entryName))) {
+            for (ZipEntry classEntry = in.getNextEntry(); classEntry != null; classEntry = in.getNextEntry()) {
+                String name = internalName(classEntry.getName());
+                if (name != null)
+                    classes.putIfAbsent(name, classEntry.getName());
+            }
+        }
+    }
+
+    @Override
+    String getIdentity() {
+        return outer.getIdentity() + "\n!/" + entryName;
+    }
+
+    @Override
+    boolean isStale() {
+        return outer.isStale();
+    }
+
+    @Override
+    Map<String, String> getClasses() {
+        return classes;
+    }
+
+    @Override
+    String getOuterEntryName() {
+        return entryName;
+    }
+
+    // a single pass over the stream instead of one per class file
+    @Override
+    Map<String, Long> getChecksums(Collection<String> entryNames) throws IOException {
+        Set<String> remaining = new HashSet<>(entryNames);
+        Map<String, Long> checksums = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(outer.open(entryName))) {
+            for (ZipEntry classEntry = in.getNextEntry(); classEntry != null && !remaining.isEmpty();
+                 classEntry = in.getNextEntry()) {
+                if (remaining.remove(classEntry.getName()))
+                    checksums.put(classEntry.getName(), checksum(in));
+            }
+        }
+        if (!remaining.isEmpty()) {
+            throw new FileNotFoundException(remaining.iterator().next() + " not found in " + entryName);
+        }
+        return checksums;
+    }
+
+    @Override
+    boolean isRandomAccess() {
+        return false;
+    }
+
+    @Override
+    InputStream open(String classEntryName) throws IOException {
+        ZipInputStream in = new ZipInputStream(outer.open(entryName));
+        try {
+            for (ZipEntry classEntry = in.getNextEntry(); classEntry != null; classEntry = in.getNextEntry()) {
+                if (classEntry.getName().equals(classEntryName))
+                    return in;
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        in.close();
+        throw new FileNotFoundException(classEntryName + " not found in " + entryName);
+    }
+
+    @Override
+    void forEachClass(ClassFileConsumer consumer) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(outer.open(entryName))) {
+            Set<String> seen = new HashSet<>();
+            for (ZipEntry classEntry = in.getNextEntry(); classEntry != null; classEntry = in.getNextEntry()) {
+                String name = internalName(classEntry.getName());
+                // the first of duplicate entries is the indexed one
+                if (name != null && seen.add(name))
+                    consumer.accept(name, in);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // the file is owned by the outer JAR
+    }
+}
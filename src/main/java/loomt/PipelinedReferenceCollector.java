@@ -0,0 +1,188 @@
+package loomt;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collects the references of every class reachable from root classes in a pipeline of three stages connected by
+ * bounded queues, so reading class files overlaps with parsing them:
+ * <ol>
+ *     <li>reader threads fetch the class file bytes (I/O-bound), or the references if they are cached already</li>
+ *     <li>parser threads extract the referenced classes (CPU-bound)</li>
+ *     <li>the calling thread merges the results into the visited set and feeds newly found classes to the readers</li>
+ * </ol>
+ * Only the merge stage touches the visited set, so each class is read exactly once. It never blocks on a full queue,
+ * it keeps the frontier that does not fit the reader queue itself, therefore the stages cannot deadlock.
+ */
+class PipelinedReferenceCollector {
+    private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+
+    private final ClassFileReader reader;
+    private final ClassFileParser parser;
+    private final int readers;
+    private final int parsers;
+
+    /**
+     * Class file of a class, or its references if no parsing is needed
+     * @param className class name
+     * @param bytes class file bytes or null
+     * @param references referenced classes or null if the bytes need parsing
+     */
+    record ClassFile(String className, byte[] bytes, Set<String> references) {}
+
+    /**
+     * First stage, must be thread-safe
+     */
+    @FunctionalInterface
+    interface ClassFileReader {
+        /**
+         * @param className class name
+         * @return class file of the class or null if the class is missing from the classpath
+         * @throws IOException if an I/O error has occurred
+         */
+        ClassFile read(String className) throws IOException;
+    }
+
+    /**
+     * Second stage, must be thread-safe
+     */
+    @FunctionalInterface
+    interface ClassFileParser {
+        /**
+         * @param classFile class file with bytes to parse
+         * @return referenced classes
+         * @throws IOException if the class file cannot be parsed
+         */
+        Set<String> parse(ClassFile classFile) throws IOException;
+    }
+
+    /**
+     * Result of the first two stages for one class, exactly one is produced for every class read
+     */
+    private record Result(String className, Set<String> references, Throwable failure) {}
+
+    /**
+     * @param reader reads class files
+     * @param parser parses class files
+     * @param readers number of reader threads
+     * @param parsers number of parser threads
+     */
+    PipelinedReferenceCollector(ClassFileReader reader, ClassFileParser parser, int readers, int parsers) {
+        this.reader = reader;
+        this.parser = parser;
+        this.readers = readers;
+        this.parsers = parsers;
+    }
+
+    /**
+     * @param rootClassNames classes to start the traversal from
+     * @return references of all reachable classes, classes missing from the classpath have no entry
+     * @throws IOException if an I/O error has occurred while reading classes
+     */
+    Map<String, Set<String>> collect(Collection<String> rootClassNames) throws IOException {
+        int threads = readers + parsers;
+        BlockingQueue<String> toRead = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * readers);
+        BlockingQueue<ClassFile> toParse = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * parsers);
+        BlockingQueue<Result> results = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dependency-checker-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < readers; i++) {
+                pool.execute(() -> read(toRead, toParse, results));
+            }
+            for (int i = 0; i < parsers; i++) {
+                pool.execute(() -> parse(toParse, results));
+            }
+            return merge(rootClassNames, toRead, results);
+        } finally {
+            // interrupts the stages waiting for work
+            pool.shutdownNow();
+        }
+    }
+
+    private Map<String, Set<String>> merge(Collection<String> rootClassNames, BlockingQueue<String> toRead,
+                                           BlockingQueue<Result> results) throws IOException {
+        Map<String, Set<String>> references = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> frontier = new ArrayDeque<>();
+        for (String rootClassName : rootClassNames) {
+            if (visited.add(rootClassName)) frontier.add(rootClassName);
+        }
+        int inFlight = 0;
+        try {
+            while (!frontier.isEmpty() || inFlight > 0) {
+                while (!frontier.isEmpty() && toRead.offer(frontier.peek())) {
+                    frontier.poll();
+                    inFlight++;
+                }
+                Result result = results.take();
+                inFlight--;
+                if (result.failure() != null) throw rethrow(result.failure());
+                if (result.references() == null) continue;
+                references.put(result.className(), result.references());
+                for (String referenced : result.references()) {
+                    if (visited.add(referenced)) frontier.add(referenced);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while collecting references");
+        }
+        return references;
+    }
+
+    private void read(BlockingQueue<String> toRead, BlockingQueue<ClassFile> toParse, BlockingQueue<Result> results) {
+        try {
+            while (true) {
+                String className = toRead.take();
+                try {
+                    ClassFile classFile = reader.read(className);
+                    if (classFile == null) results.put(new Result(className, null, null));
+                    else if (classFile.references() != null)
+                        results.put(new Result(className, classFile.references(), null));
+                    else toParse.put(classFile);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    results.put(new Result(className, null, e));
+                }
+            }
+        } catch (InterruptedException e) {
+            // the pipeline is shut down
+        }
+    }
+
+    private void parse(BlockingQueue<ClassFile> toParse, BlockingQueue<Result> results) {
+        try {
+            while (true) {
+                ClassFile classFile = toParse.take();
+                try {
+                    results.put(new Result(classFile.className(), parser.parse(classFile), null));
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    results.put(new Result(classFile.className(), null, e));
+                }
+            }
+        } catch (InterruptedException e) {
+            // the pipeline is shut down
+        }
+    }
+
+    private static IOException rethrow(Throwable failure) {
+        if (failure instanceof IOException e) return e;
+        if (failure instanceof UncheckedIOException e) return e.getCause();
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure instanceof Error e) throw e;
+        return new IOException(failure);
+    }
+}
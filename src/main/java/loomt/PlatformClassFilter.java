@@ -0,0 +1,148 @@
+package loomt;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Decides which referenced classes belong to the platform and are therefore not looked up on the classpath.
+ * The filter is built from package patterns: {@code com.name} matches the classes of exactly that package and
+ * {@code com.name.*} matches the package and all its subpackages. Excluded patterns mark classes as platform classes,
+ * included patterns mark them as application classes that must be found on the classpath, and the most specific
+ * matching pattern wins, so {@code javax.*} can be excluded while {@code javax.inject} is still checked.
+ *
+ * <p>The patterns are compiled into a character trie of package names, so a class name is classified in a single
+ * pass over its characters without allocating. Filters are immutable and thread-safe.
+ */
+public final class PlatformClassFilter {
+    /**
+     * Package patterns excluded by {@link #defaults()}
+     */
+    public static final List<String> DEFAULT_PLATFORM_PACKAGES =
+            List.of("java.*", "javax.*", "jdk.*", "sun.*", "com.sun.*");
+
+    private static final PlatformClassFilter DEFAULTS = of(DEFAULT_PLATFORM_PACKAGES, List.of());
+
+    private final Node root = new Node();
+
+    /**
+     * Trie node reached after the characters of a package name prefix. Rules are stored on the nodes reached after
+     * the {@code .} following a package name, null if no pattern names that package
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        // whether the classes of exactly this package are platform classes
+        private Boolean packageRule;
+        // whether the classes of this package and its subpackages are platform classes
+        private Boolean subtreeRule;
+
+        private Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) return children[i];
+            }
+            return null;
+        }
+
+        private Node addChild(char key) {
+            Node child = child(key);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = key;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    private PlatformClassFilter() {
+    }
+
+    /**
+     * @return filter excluding the {@linkplain #DEFAULT_PLATFORM_PACKAGES packages of the standard library}
+     * by their well-known prefixes
+     */
+    public static PlatformClassFilter defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param excludedPatterns package patterns of platform classes
+     * @param includedPatterns package patterns of classes to find on the classpath even if an excluded pattern
+     * matches them too, they win over equally specific excluded patterns
+     * @return filter compiled from the patterns
+     * @throws IllegalArgumentException if a pattern is not a package name optionally followed by {@code .*}
+     */
+    public static PlatformClassFilter of(Collection<String> excludedPatterns, Collection<String> includedPatterns) {
+        PlatformClassFilter filter = new PlatformClassFilter();
+        for (String pattern : excludedPatterns) {
+            filter.add(pattern, true);
+        }
+        for (String pattern : includedPatterns) {
+            filter.add(pattern, false);
+        }
+        return filter;
+    }
+
+    /**
+     * Lists the packages of a Java runtime image, to exclude exactly the packages a target platform provides
+     * @param javaHome home directory of a JDK 9 or later, or null for the running JDK
+     * @return sorted package patterns of all packages in the modules of the runtime image
+     * @throws IOException if the runtime image can not be read
+     */
+    public static List<String> runtimeImagePackages(Path javaHome) throws IOException {
+        if (javaHome == null) {
+            return listPackages(FileSystems.getFileSystem(URI.create("jrt:/")));
+        }
+        try (FileSystem image = FileSystems.newFileSystem(URI.create("jrt:/"),
+                Map.of("java.home", javaHome.toString()))) {
+            return listPackages(image);
+        } catch (ProviderNotFoundException | UnsupportedOperationException e) {
+            throw new IOException("No runtime image found in " + javaHome, e);
+        }
+    }
+
+    private static List<String> listPackages(FileSystem image) throws IOException {
+        // the image has a directory per package listing the modules containing it
+        try (Stream<Path> packages = Files.list(image.getPath("/packages"))) {
+            return packages.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    /**
+     * @param className class name, e.g. {@code com.name.Class}
+     * @return true iff the class belongs to the platform and is not looked up on the classpath
+     */
+    public boolean isPlatformClass(String className) {
+        boolean platform = false;
+        int lastDot = className.lastIndexOf('.');
+        Node node = root;
+        for (int i = 0; i <= lastDot; i++) {
+            node = node.child(className.charAt(i));
+            if (node == null) return platform;
+            if (i == lastDot && node.packageRule != null) return node.packageRule;
+            if (node.subtreeRule != null && className.charAt(i) == '.') platform = node.subtreeRule;
+        }
+        return platform;
+    }
+
+    private void add(String pattern, boolean platform) {
+        boolean subtree = pattern.endsWith(".*");
+        String packageName = subtree ? pattern.substring(0, pattern.length() - 2) : pattern;
+        if (packageName.isEmpty() || packageName.startsWith(".") || packageName.endsWith(".")
+                || packageName.contains("*") || packageName.contains("..")) {
+            throw new IllegalArgumentException("Invalid package pattern: " + pattern);
+        }
+        Node node = root;
+        for (int i = 0; i < packageName.length(); i++) {
+            node = node.addChild(packageName.charAt(i));
+        }
+        node = node.addChild('.');
+        if (subtree) node.subtreeRule = platform;
+        else node.packageRule = platform;
+    }
+}
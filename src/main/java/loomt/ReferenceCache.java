@@ -0,0 +1,83 @@
+package loomt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Persistent cache of the references of every class in a class source.
+ * Entries are keyed by the {@linkplain ClassSource#getIdentity() identity} of the source, e.g. the JAR path,
+ * size and modification time, together with the analysis mode and the version of the reference extraction,
+ * so a source that has not changed since it was cached is never parsed again.
+ */
+class ReferenceCache {
+    // changes whenever the extracted references change, so graphs of older versions are never reused
+    private static final int EXTRACTION_VERSION = 2;
+
+    private final Path directory;
+
+    /**
+     * @param directory directory to keep the cache files in, created if it does not exist
+     */
+    ReferenceCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param source class source
+     * @param mode analysis mode the references were extracted with
+     * @return memory-mapped reference graph of all classes in the source or null if it is not cached
+     */
+    MappedDependencyGraph get(ClassSource source, AnalysisMode mode) {
+        Path cacheFile = directory.resolve(key(source, mode));
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try {
+            return MappedDependencyGraph.open(cacheFile);
+        } catch (IOException e) {
+            // truncated or corrupted cache file, the JAR will be analyzed again
+            return null;
+        }
+    }
+
+    /**
+     * Stores the references of all classes in a class source, replacing the cache file atomically
+     * @param source class source
+     * @param mode analysis mode the references were extracted with
+     * @param references references of all classes in the source
+     * @return memory-mapped reference graph of the stored cache file
+     * @throws IOException if an I/O error has occurred while writing the cache file
+     */
+    MappedDependencyGraph put(ClassSource source, AnalysisMode mode, Map<String, Set<String>> references)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path cacheFile = directory.resolve(key(source, mode));
+        Path tempFile = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            MappedDependencyGraph.write(tempFile, references);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return MappedDependencyGraph.open(cacheFile);
+    }
+
+    /**
+     * @param source class source
+     * @param mode analysis mode
+     * @return name of the cache file of the source
+     */
+    private static String key(ClassSource source, AnalysisMode mode) {
+        String identity = source.getIdentity() + '\n' + mode + '\n' + EXTRACTION_VERSION;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest) + ".graph";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package loomt;
+
+import org.objectweb.asm.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the classes referenced by a class file while ASM reads it, without building a ClassNode tree.
+ * References are gathered from the superclass, interfaces, field types, complete method descriptors, generic
+ * signatures and thrown exceptions, annotations, and from every instruction naming a class: object creation, casts
+ * and instanceof checks, method calls and field accesses of any kind with their descriptors, invokedynamic call sites
+ * with their bootstrap arguments, class and method type constants and caught exceptions. Local variable tables are
+ * only needed for type arguments of generic locals, so debug-stripped class files are analyzed just as completely.
+ * Descriptors are parsed through a shared {@link DescriptorCache}, once per unique string.
+ */
+class ReferenceCollector extends ClassVisitor {
+    private final Set<String> classes = new HashSet<>();
+    private final DescriptorCache descriptors;
+
+    private final FieldVisitor fieldVisitor = new FieldVisitor(Opcodes.ASM9) {
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath,
+                                                     String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+    };
+
+    private final MethodVisitor methodVisitor = new MethodVisitor(Opcodes.ASM9) {
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath,
+                                                     String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start,
+                                                              Label[] end, int[] index, String descriptor,
+                                                              boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitInsnAnnotation(int typeRef, TypePath typePath,
+                                                     String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        @Override
+        public AnnotationVisitor visitTryCatchAnnotation(int typeRef, TypePath typePath,
+                                                         String descriptor, boolean visible) {
+            return visitAnnotationDescriptor(descriptor);
+        }
+
+        // check for instantiation, cast, or instanceof operations
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            addInternalName(type);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            addDescriptor(descriptor);
+        }
+
+        // the owner of a virtual or interface call must exist as well, and so must the parameter and return types
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            addInternalName(owner);
+            addDescriptor(descriptor);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            addInternalName(owner);
+            addDescriptor(descriptor);
+        }
+
+        // lambdas and string concatenations name their implementation methods only in the bootstrap arguments
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                           Object... bootstrapMethodArguments) {
+            addDescriptor(descriptor);
+            addConstant(bootstrapMethodHandle);
+            for (Object argument : bootstrapMethodArguments) {
+                addConstant(argument);
+            }
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            addConstant(value);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            if (type != null)
+                addInternalName(type);
+        }
+
+        // add local variable signatures because generic classes only show their assigned type here
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature,
+                                       Label start, Label end, int index) {
+            addDescriptor(descriptor);
+            if (signature != null)
+                addDescriptor(signature);
+        }
+    };
+
+    /**
+     * @param descriptors cache of the classes named by descriptors, shared by the collectors of a checker
+     */
+    ReferenceCollector(DescriptorCache descriptors) {
+        super(Opcodes.ASM9);
+        this.descriptors = descriptors;
+    }
+
+    /**
+     * @return all classes referenced by the visited class, including standard library classes
+     */
+    Set<String> getReferencedClasses() {
+        return classes;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature,
+                      String superName, String[] interfaces) {
+        if (superName != null)
+            addInternalName(superName);
+        if (signature != null)
+            addDescriptor(signature);
+        if (interfaces != null)
+            for (String i : interfaces)
+                addInternalName(i);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        return visitAnnotationDescriptor(descriptor);
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        return visitAnnotationDescriptor(descriptor);
+    }
+
+    // add field signatures because generic classes only show their assigned type here
+    // also add their annotations
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+        addDescriptor(descriptor);
+        if (signature != null)
+            addDescriptor(signature);
+        return fieldVisitor;
+    }
+
+    // add parameter, return and exception types and collect the instructions, local variables and annotations
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                     String signature, String[] exceptions) {
+        addDescriptor(descriptor);
+        if (signature != null)
+            addDescriptor(signature);
+        if (exceptions != null)
+            for (String exception : exceptions)
+                addInternalName(exception);
+        return methodVisitor;
+    }
+
+    /**
+     * @param descriptor annotation type descriptor
+     * @return null to skip annotation values, only the annotation types are references of interest
+     */
+    private AnnotationVisitor visitAnnotationDescriptor(String descriptor) {
+        addDescriptor(descriptor);
+        return null;
+    }
+
+    /**
+     * @param value constant of an ldc instruction or a bootstrap method argument
+     */
+    private void addConstant(Object value) {
+        if (value instanceof Type type) {
+            if (type.getSort() == Type.OBJECT) addInternalName(type.getInternalName());
+            else addDescriptor(type.getDescriptor());
+        } else if (value instanceof Handle handle) {
+            addInternalName(handle.getOwner());
+            addDescriptor(handle.getDesc());
+        } else if (value instanceof ConstantDynamic constant) {
+            addDescriptor(constant.getDescriptor());
+            addConstant(constant.getBootstrapMethod());
+            for (int i = 0; i < constant.getBootstrapMethodArgumentCount(); i++) {
+                addConstant(constant.getBootstrapMethodArgument(i));
+            }
+        }
+    }
+
+    /**
+     * @param internalName internal name (e.g. {@code com/name/Class}) or array descriptor of a class
+     */
+    private void addInternalName(String internalName) {
+        if (internalName.startsWith("[")) addDescriptor(internalName);
+        else classes.add(descriptors.classNameOf(internalName));
+    }
+
+    /**
+     * @param descriptor field or method descriptor, or class, method or field signature
+     */
+    private void addDescriptor(String descriptor) {
+        Collections.addAll(classes, descriptors.classesOf(descriptor));
+    }
+}
@@ -0,0 +1,128 @@
+package loomt;
+
+import java.util.*;
+
+/**
+ * Class reference graph reached from root classes, kept with an inverted index to answer who needs a class.
+ * The inverted index is built once in compressed sparse row form: the ids of the classes referencing each class are
+ * stored consecutively in a single int array. Every query costs time proportional to its answer, and the shortest
+ * reference chain from a root follows the first referrer of each class recorded by the breadth-first traversal.
+ */
+public final class ReferenceGraph {
+    private final ClassNameTable names;
+    // id of the class through which each class was first reached, -1 for roots
+    private final int[] referencedBy;
+    // position of the classpath entry defining each class, -1 for missing classes
+    private final int[] sources;
+    private final List<String> jarPaths;
+    // referrers of class id i are referrers[referrerOffsets[i]] to referrers[referrerOffsets[i + 1] - 1]
+    private final int[] referrerOffsets;
+    private final int[] referrers;
+
+    /**
+     * @param names ids of all reached classes
+     * @param referencedBy id of the first referrer of each class, -1 for roots
+     * @param edges ids of the classes referenced by each class id, null or absent for missing classes
+     * @param sources position of the classpath entry defining each class, -1 for missing classes
+     * @param jarPaths paths of the classpath entries
+     */
+    ReferenceGraph(ClassNameTable names, int[] referencedBy, int[][] edges, int[] sources, List<String> jarPaths) {
+        this.names = names;
+        this.referencedBy = referencedBy;
+        this.sources = sources;
+        this.jarPaths = List.copyOf(jarPaths);
+        int size = names.size();
+        referrerOffsets = new int[size + 1];
+        for (int id = 0; id < Math.min(size, edges.length); id++) {
+            if (edges[id] == null) continue;
+            for (int referenced : edges[id]) {
+                // a class referencing itself is no answer to who needs it
+                if (referenced != id) referrerOffsets[referenced + 1]++;
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            referrerOffsets[id + 1] += referrerOffsets[id];
+        }
+        referrers = new int[referrerOffsets[size]];
+        int[] next = Arrays.copyOf(referrerOffsets, size);
+        for (int id = 0; id < Math.min(size, edges.length); id++) {
+            if (edges[id] == null) continue;
+            for (int referenced : edges[id]) {
+                if (referenced != id) referrers[next[referenced]++] = id;
+            }
+        }
+    }
+
+    /**
+     * @param className class name
+     * @return true iff the class is reachable from the roots, whether it was found or not
+     */
+    public boolean contains(String className) {
+        return names.find(className) >= 0;
+    }
+
+    /**
+     * @param className class name
+     * @return true iff the class is reachable from the roots but missing from the classpath
+     */
+    public boolean isMissing(String className) {
+        int id = names.find(className);
+        return id >= 0 && sources[id] < 0;
+    }
+
+    /**
+     * @param className class name
+     * @return path of the JAR file the class is loaded from, null if it is missing or not reachable
+     */
+    public String getJarPath(String className) {
+        int id = names.find(className);
+        return id < 0 || sources[id] < 0 ? null : jarPaths.get(sources[id]);
+    }
+
+    /**
+     * @param className class name
+     * @return reachable classes referencing the class directly, in the order they were reached
+     */
+    public List<String> getReferencingClasses(String className) {
+        int id = names.find(className);
+        if (id < 0) return List.of();
+        List<String> classes = new ArrayList<>(referrerOffsets[id + 1] - referrerOffsets[id]);
+        for (int i = referrerOffsets[id]; i < referrerOffsets[id + 1]; i++) {
+            classes.add(names.name(referrers[i]));
+        }
+        return classes;
+    }
+
+    /**
+     * @param className class name
+     * @return paths of the JAR files containing reachable classes that reference the class directly,
+     * in classpath order
+     */
+    public List<String> getReferencingJars(String className) {
+        int id = names.find(className);
+        if (id < 0) return List.of();
+        BitSet jars = new BitSet(jarPaths.size());
+        for (int i = referrerOffsets[id]; i < referrerOffsets[id + 1]; i++) {
+            jars.set(sources[referrers[i]]);
+        }
+        List<String> paths = new ArrayList<>(jars.cardinality());
+        for (int jar = jars.nextSetBit(0); jar >= 0; jar = jars.nextSetBit(jar + 1)) {
+            paths.add(jarPaths.get(jar));
+        }
+        return paths;
+    }
+
+    /**
+     * @param className class name
+     * @return shortest reference chain from a root to the class, starting with the root and ending with the class,
+     * empty if the class is not reachable
+     */
+    public List<String> findShortestChain(String className) {
+        List<String> chain = new ArrayList<>();
+        for (int id = names.find(className); id >= 0; id = referencedBy[id]) {
+            chain.add(names.name(id));
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+}
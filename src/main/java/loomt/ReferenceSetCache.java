@@ -0,0 +1,101 @@
+package loomt;
+
+import java.util.*;
+
+/**
+ * Size-bounded LRU cache of the parsed reference sets of classes, shared by all calls of a {@link DependencyChecker}.
+ * The heap footprint of every entry is estimated from its class names, and the least recently used entries are
+ * evicted once the estimate exceeds the limit, so memory use stays predictable however large the classpath is.
+ * An evicted class is simply parsed again when a traversal reaches it.
+ */
+class ReferenceSetCache {
+    // object headers, references and hash table slots of an entry and its set, excluding the names
+    private static final long ENTRY_OVERHEAD = 160;
+    // set node, string object and array headers of a referenced name
+    private static final long NAME_OVERHEAD = 80;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Set<String>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private record Key(ClassSource source, String className) {}
+
+    /**
+     * @param maxBytes limit of the estimated heap footprint of the cached reference sets
+     */
+    ReferenceSetCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param source class source defining the class
+     * @param className class name
+     * @return referenced classes of the class or null if they are not cached
+     */
+    synchronized Set<String> get(ClassSource source, String className) {
+        return entries.get(new Key(source, className));
+    }
+
+    /**
+     * Caches the referenced classes of a class, evicting the least recently used entries if needed
+     * @param source class source defining the class
+     * @param className class name
+     * @param classes referenced classes, not modified afterwards
+     */
+    synchronized void put(ClassSource source, String className, Set<String> classes) {
+        Set<String> previous = entries.put(new Key(source, className), classes);
+        if (previous != null) bytes -= estimateSize(className, previous);
+        bytes += estimateSize(className, classes);
+        Iterator<Map.Entry<Key, Set<String>>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, Set<String>> entry = eldest.next();
+            bytes -= estimateSize(entry.getKey().className(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes the entries of a class source, e.g. when it changed on disk
+     * @param source class source
+     */
+    synchronized void remove(ClassSource source) {
+        Iterator<Map.Entry<Key, Set<String>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Set<String>> entry = iterator.next();
+            if (entry.getKey().source() == source) {
+                bytes -= estimateSize(entry.getKey().className(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries
+     */
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return number of cached reference sets
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated heap footprint of the cached reference sets in bytes
+     */
+    synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    private static long estimateSize(String className, Set<String> classes) {
+        long size = ENTRY_OVERHEAD + className.length();
+        for (String name : classes) {
+            size += NAME_OVERHEAD + name.length();
+        }
+        return size;
+    }
+}
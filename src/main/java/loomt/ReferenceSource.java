@@ -0,0 +1,17 @@
+package loomt;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Provides the classes referenced by a class on the classpath
+ */
+@FunctionalInterface
+interface ReferenceSource {
+    /**
+     * @param className class name
+     * @return set of referenced classes or null if the class is not on the classpath
+     * @throws IOException if an I/O error has occurred while reading the class
+     */
+    Set<String> referencesOf(String className) throws IOException;
+}
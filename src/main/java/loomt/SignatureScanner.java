@@ -0,0 +1,167 @@
+package loomt;
+
+import java.util.Set;
+
+/**
+ * Single-pass scanner adding the classes named by JVM descriptors and generic signatures to a set.
+ * It understands field and method descriptors, class, method and field signatures with formal type parameters,
+ * type variables, wildcards, arrays and inner classes of generic classes ({@code Lcom/Outer<TT;>.Inner;} names
+ * both {@code com.Outer} and {@code com.Outer$Inner}). Class names are converted to their dotted form in a reused
+ * buffer, so the only allocation per name is the resulting string.
+ */
+final class SignatureScanner {
+    private final Set<String> classes;
+    private char[] buffer = new char[64];
+    private int length;
+
+    /**
+     * @param classes set to add the referenced class names to
+     */
+    SignatureScanner(Set<String> classes) {
+        this.classes = classes;
+    }
+
+    /**
+     * @param signature field or method descriptor, or class, method or field signature
+     */
+    void addSignature(String signature) {
+        int i = 0;
+        if (signature.startsWith("<")) {
+            i = scanFormalTypeParameters(signature, i);
+        }
+        while (i < signature.length()) {
+            char c = signature.charAt(i);
+            // parameter list delimiters and thrown exceptions of method signatures
+            if (c == '(' || c == ')' || c == '^') i++;
+            else i = scanType(signature, i);
+        }
+    }
+
+    /**
+     * @return index after the type starting at {@code i}
+     */
+    private int scanType(String signature, int i) {
+        switch (signature.charAt(i)) {
+            case 'L' -> {
+                return scanClassType(signature, i + 1);
+            }
+            case 'T' -> {
+                // type variable
+                return signature.indexOf(';', i) + 1;
+            }
+            case '[' -> {
+                return scanType(signature, i + 1);
+            }
+            default -> {
+                // primitive type or void
+                return i + 1;
+            }
+        }
+    }
+
+    /**
+     * @param i index after the {@code L} of a class type
+     * @return index after the {@code ;} ending the class type
+     */
+    private int scanClassType(String signature, int i) {
+        int nameStart = i;
+        // start of the name segment not yet in the buffer, -1 if type arguments overwrote the buffer
+        int segmentStart = i;
+        length = 0;
+        while (true) {
+            char c = signature.charAt(i);
+            if (c == '<') {
+                append(signature, segmentStart, i);
+                emit();
+                i = scanTypeArguments(signature, i + 1);
+                segmentStart = -1;
+            } else if (c == '.') {
+                // inner class of a generic class, the outer class is referenced too
+                if (segmentStart >= 0) {
+                    append(signature, segmentStart, i);
+                    emit();
+                } else {
+                    rebuildName(signature, nameStart, i);
+                }
+                ensureCapacity(length + 1);
+                buffer[length++] = '$';
+                segmentStart = ++i;
+            } else if (c == ';') {
+                if (segmentStart >= 0) {
+                    append(signature, segmentStart, i);
+                    emit();
+                }
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Puts the name of an outer class into the buffer again, skipping type arguments and joining inner classes with
+     * {@code $}, after the type arguments of the outer class overwrote the buffer
+     */
+    private void rebuildName(String signature, int start, int end) {
+        length = 0;
+        ensureCapacity(end - start);
+        int depth = 0;
+        for (int i = start; i < end; i++) {
+            char c = signature.charAt(i);
+            if (c == '<') depth++;
+            else if (c == '>') depth--;
+            else if (depth == 0) buffer[length++] = c == '/' ? '.' : c == '.' ? '$' : c;
+        }
+    }
+
+    /**
+     * @param i index after the opening {@code <}
+     * @return index after the closing {@code >}
+     */
+    private int scanTypeArguments(String signature, int i) {
+        while (signature.charAt(i) != '>') {
+            char c = signature.charAt(i);
+            if (c == '*') i++;
+            else if (c == '+' || c == '-') i = scanType(signature, i + 1);
+            else i = scanType(signature, i);
+        }
+        return i + 1;
+    }
+
+    /**
+     * @param i index of the opening {@code <}
+     * @return index after the closing {@code >}
+     */
+    private int scanFormalTypeParameters(String signature, int i) {
+        i++;
+        while (signature.charAt(i) != '>') {
+            // skip the identifier, then the class bound and the interface bounds, the class bound may be empty
+            i = signature.indexOf(':', i);
+            while (signature.charAt(i) == ':') {
+                i++;
+                if (signature.charAt(i) != ':') i = scanType(signature, i);
+            }
+        }
+        return i + 1;
+    }
+
+    private void append(String signature, int start, int end) {
+        ensureCapacity(length + end - start);
+        for (int i = start; i < end; i++) {
+            char c = signature.charAt(i);
+            buffer[length++] = c == '/' ? '.' : c;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            char[] grown = new char[Math.max(capacity, buffer.length * 2)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+    private void emit() {
+        classes.add(new String(buffer, 0, length));
+    }
+}
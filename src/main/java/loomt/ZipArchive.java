@@ -0,0 +1,333 @@
+package loomt;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only zip archive parsed straight from a memory mapping of the file.
+ * Only the central directory is read when the archive is opened: entry names stay in the mapping and are
+ * found through an open-addressing hash table of entry indexes, and an entry is only located and inflated
+ * when its bytes are requested. Stored entries, e.g. the nested JARs of a Spring Boot fat JAR,
+ * can be opened as archives themselves without copying.
+ *
+ * <p>Archives up to {@link #HEAP_LIMIT} bytes are read onto the heap instead, so they neither keep the file open
+ * nor fail when it is rewritten. A mapping is only released by the garbage collector, and reading it after the
+ * file was truncated throws {@link InternalError}, which callers must report as an {@link IOException}.
+ *
+ * <p>Zip64 archives, archives larger than 2 GB and encrypted entries are not supported,
+ * {@link ZipException} is thrown for them so the caller can fall back to {@link java.util.zip.ZipFile}.
+ */
+final class ZipArchive {
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int END_SIZE = 22;
+    private static final int CENTRAL_SIZE = 46;
+    private static final int LOCAL_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    // larger archives are mapped, typically fat JARs of which only a few entries are read
+    static final int HEAP_LIMIT = 8 << 20;
+
+    private final ByteBuffer buffer;
+    // offset of the archive start, non-zero if data precedes the archive as in jmod files
+    private final int base;
+    private final int[] nameOffsets;
+    private final int[] nameLengths;
+    private final int[] methods;
+    private final int[] crcs;
+    private final int[] compressedSizes;
+    private final int[] sizes;
+    private final int[] localOffsets;
+    // entry index + 1 by name hash, 0 marks a free slot
+    private final int[] table;
+
+    /**
+     * Parses the central directory of an archive
+     * @param buffer bytes of the archive
+     * @throws ZipException if the archive is malformed or uses unsupported features
+     */
+    ZipArchive(ByteBuffer buffer) throws ZipException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEnd();
+        int count = unsignedShort(end + 10);
+        long centralSize = unsignedInt(end + 12);
+        long centralOffset = unsignedInt(end + 16);
+        if (count == 0xFFFF || centralSize == 0xFFFFFFFFL || centralOffset == 0xFFFFFFFFL) {
+            throw new ZipException("Zip64 archives are not supported");
+        }
+        long start = end - centralSize;
+        if (start < 0 || start < centralOffset) {
+            throw new ZipException("Invalid central directory");
+        }
+        base = (int) (start - centralOffset);
+
+        nameOffsets = new int[count];
+        nameLengths = new int[count];
+        methods = new int[count];
+        crcs = new int[count];
+        compressedSizes = new int[count];
+        sizes = new int[count];
+        localOffsets = new int[count];
+        table = new int[Integer.highestOneBit(Math.max(count, 1)) * 4];
+        int position = (int) start;
+        for (int i = 0; i < count; i++) {
+            if (position + CENTRAL_SIZE > end || this.buffer.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new ZipException("Invalid central directory header");
+            }
+            int flags = unsignedShort(position + 8);
+            if ((flags & 1) != 0) {
+                throw new ZipException("Encrypted entries are not supported");
+            }
+            methods[i] = unsignedShort(position + 10);
+            crcs[i] = this.buffer.getInt(position + 16);
+            long compressedSize = unsignedInt(position + 20);
+            long size = unsignedInt(position + 24);
+            long localOffset = unsignedInt(position + 42);
+            if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE || localOffset > Integer.MAX_VALUE) {
+                throw new ZipException("Zip64 entries are not supported");
+            }
+            // a local header always precedes the central directory
+            if (base + localOffset + LOCAL_SIZE > start) {
+                throw new ZipException("Invalid local header offset");
+            }
+            long next = (long) position + CENTRAL_SIZE + unsignedShort(position + 28)
+                    + unsignedShort(position + 30) + unsignedShort(position + 32);
+            if (next > end) {
+                throw new ZipException("Truncated central directory header");
+            }
+            compressedSizes[i] = (int) compressedSize;
+            sizes[i] = (int) size;
+            localOffsets[i] = (int) localOffset;
+            nameOffsets[i] = position + CENTRAL_SIZE;
+            nameLengths[i] = unsignedShort(position + 28);
+            position = (int) next;
+            insert(i);
+        }
+    }
+
+    /**
+     * Reads a zip file onto the heap or maps it into memory if it is large, and parses its central directory
+     * @param file zip file
+     * @return archive backed by the file contents
+     * @throws ZipException if the archive is malformed, larger than 2 GB or uses unsupported features
+     * @throws IOException if an I/O error has occurred
+     */
+    static ZipArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ZipException("Archives larger than 2 GB are not supported");
+            }
+            if (channel.size() <= HEAP_LIMIT) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) break;
+                }
+                return new ZipArchive(buffer.flip());
+            }
+            // the mapping stays valid after the channel is closed
+            return new ZipArchive(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Searches backwards for the end of central directory record, which may be followed by a comment
+     */
+    private int findEnd() throws ZipException {
+        int limit = Math.max(0, buffer.capacity() - END_SIZE - MAX_COMMENT_SIZE);
+        for (int position = buffer.capacity() - END_SIZE; position >= limit; position--) {
+            if (buffer.getInt(position) == END_SIGNATURE
+                    && position + END_SIZE + unsignedShort(position + 20) == buffer.capacity()) {
+                return position;
+            }
+        }
+        throw new ZipException("End of central directory not found");
+    }
+
+    /**
+     * @return number of entries
+     */
+    int size() {
+        return nameOffsets.length;
+    }
+
+    /**
+     * @param index entry index
+     * @return name of the entry
+     */
+    String name(int index) {
+        byte[] bytes = new byte[nameLengths[index]];
+        buffer.get(nameOffsets[index], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param name entry name
+     * @return index of the entry or -1 if the archive has no such entry
+     */
+    int find(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            if (nameEquals(table[slot] - 1, key)) {
+                return table[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param index entry index
+     * @return CRC-32 of the uncompressed entry bytes as recorded in the central directory
+     */
+    int crc(int index) {
+        return crcs[index];
+    }
+
+    /**
+     * @param index entry index
+     * @return number of uncompressed entry bytes
+     */
+    int uncompressedSize(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @param index entry index
+     * @return true iff the entry is stored without compression
+     */
+    boolean isStored(int index) {
+        return methods[index] == STORED;
+    }
+
+    /**
+     * Locates an entry and copies or inflates its bytes, so the stream does not read the mapping later
+     * @param index entry index
+     * @return stream of the entry bytes
+     * @throws IOException if the entry is malformed or uses an unsupported compression method
+     */
+    InputStream open(int index) throws IOException {
+        ByteBuffer data = data(index);
+        if (methods[index] == STORED) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        if (methods[index] != DEFLATED) {
+            throw new ZipException("Unsupported compression method " + methods[index] + ": " + name(index));
+        }
+        byte[] bytes = new byte[sizes[index]];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated entry: " + name(index));
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid entry " + name(index) + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    /**
+     * Opens a stored entry as an archive backed by the same mapping
+     * @param index index of a stored entry
+     * @return nested archive
+     * @throws ZipException if the entry is compressed or not a supported archive
+     */
+    ZipArchive openNested(int index) throws ZipException {
+        if (methods[index] != STORED) {
+            throw new ZipException("Nested archive is compressed: " + name(index));
+        }
+        return new ZipArchive(data(index));
+    }
+
+    /**
+     * @return the compressed bytes of an entry, found through its local header
+     */
+    private ByteBuffer data(int index) throws ZipException {
+        int local = base + localOffsets[index];
+        if (local < 0 || local + LOCAL_SIZE > buffer.capacity() || buffer.getInt(local) != LOCAL_SIGNATURE) {
+            throw new ZipException("Invalid local header: " + name(index));
+        }
+        int start = local + LOCAL_SIZE + unsignedShort(local + 26) + unsignedShort(local + 28);
+        if ((long) start + compressedSizes[index] > buffer.capacity()) {
+            throw new ZipException("Truncated entry: " + name(index));
+        }
+        return buffer.slice(start, compressedSizes[index]);
+    }
+
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int slot = hash(index) & mask;
+        for (; table[slot] != 0; slot = (slot + 1) & mask) {
+            // the first of duplicate entries wins, as with ZipFile
+            if (nameLengths[table[slot] - 1] == nameLengths[index] && nameEquals(table[slot] - 1, index)) return;
+        }
+        table[slot] = index + 1;
+    }
+
+    private boolean nameEquals(int index, byte[] key) {
+        if (nameLengths[index] != key.length) return false;
+        int offset = nameOffsets[index];
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean nameEquals(int index, int other) {
+        for (int i = 0; i < nameLengths[index]; i++) {
+            if (buffer.get(nameOffsets[index] + i) != buffer.get(nameOffsets[other] + i)) return false;
+        }
+        return true;
+    }
+
+    private int hash(int index) {
+        int hash = 0;
+        for (int i = 0; i < nameLengths[index]; i++) {
+            hash = 31 * hash + buffer.get(nameOffsets[index] + i);
+        }
+        return mix(hash);
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 0;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int hash) {
+        // spread the high bits, names often differ only in their last characters
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private int unsignedShort(int position) {
+        return Short.toUnsignedInt(buffer.getShort(position));
+    }
+
+    private long unsignedInt(int position) {
+        return Integer.toUnsignedLong(buffer.getInt(position));
+    }
+}
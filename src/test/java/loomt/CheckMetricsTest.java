@@ -0,0 +1,32 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckMetricsTest {
+    private final CheckMetrics metrics = new CheckMetrics(2, 40_000_000, 1_000_000, 5_000_000, 20_000_000,
+            500_000, 3, 120, 100, 250_000, 30, 90, 1, 2, 17);
+
+    @Test
+    void hitRate() {
+        assertEquals(0.25, metrics.referenceHitRate());
+        assertEquals(0.0, new CheckMetrics(1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0).referenceHitRate());
+    }
+
+    @Test
+    void json() {
+        assertEquals("{\"rootCount\":2,\"totalNanos\":40000000,\"indexNanos\":1000000,\"readNanos\":5000000,"
+                + "\"parseNanos\":20000000,\"cacheNanos\":500000,\"sourcesOpened\":3,\"classesVisited\":120,"
+                + "\"classesParsed\":100,\"bytesRead\":250000,\"referenceHits\":30,\"referenceMisses\":90,"
+                + "\"graphCacheHits\":1,\"graphCacheMisses\":2,\"frontierPeak\":17}", metrics.toJson());
+    }
+
+    @Test
+    void summary() {
+        String summary = metrics.toSummary();
+        assertTrue(summary.startsWith("Checked 2 root(s) in 40.0 ms"));
+        assertTrue(summary.contains("parse           20.0 ms  100 classes parsed"));
+        assertTrue(summary.contains("(25.0 % hit rate)"));
+    }
+}
@@ -0,0 +1,29 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassNameTableTest {
+    @Test
+    void internAssignsDenseIds() {
+        ClassNameTable table = new ClassNameTable();
+        assertEquals(0, table.intern("com.a.A"));
+        assertEquals(1, table.intern("com.b.B"));
+        assertEquals(0, table.intern("com.a.A"));
+        assertEquals(2, table.size());
+        assertEquals("com.b.B", table.name(1));
+        assertEquals(-1, table.find("com.c.C"));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        ClassNameTable table = new ClassNameTable();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, table.intern("com.generated.Class" + i));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, table.find("com.generated.Class" + i));
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package loomt;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generates reproducible synthetic classpaths with ASM for scale tests and benchmarks.
+ *
+ * <p>Class {@code i} always references class {@code i + 1}, so every class is reachable from the
+ * {@linkplain #getRootClassName() root class}, plus {@code fanOut - 1} further classes picked with a seeded random.
+ * These point forward unless they are turned into back edges with the cycle density. References are emitted as
+ * static calls, field types, casts, generic field signatures and class annotations, and a number of referenced
+ * classes are deliberately left out of the classpath. The same settings always produce the same JAR files.
+ *
+ * <p>It can be run from the command line to write an offline workload:
+ * {@code ClasspathGenerator <directory> [--classes <n>] [--classes-per-jar <n>] [--fan-out <n>] [--cycles <d>]
+ * [--generics <d>] [--annotations <d>] [--missing <n>] [--seed <n>]}
+ */
+class ClasspathGenerator {
+    private static final String PACKAGE = "synthetic/";
+    private static final int CLASSES_PER_PACKAGE = 100;
+    private static final int ANNOTATION_COUNT = 10;
+    // fixed entry time keeps the generated JAR files byte for byte reproducible
+    private static final long ENTRY_TIME = 946684800000L;
+
+    private int classCount = 10_000;
+    private int classesPerJar = 1000;
+    private int fanOut = 4;
+    private double cycleDensity = 0.05;
+    private double genericDensity = 0.2;
+    private double annotationDensity = 0.2;
+    private int missingClassCount = 10;
+    private long seed = 42;
+
+    /**
+     * @param classCount number of classes, at least 1
+     */
+    void setClassCount(int classCount) {
+        if (classCount < 1) throw new IllegalArgumentException("Class count must be positive: " + classCount);
+        this.classCount = classCount;
+    }
+
+    /**
+     * @param classesPerJar number of classes in each JAR file, at least 1
+     */
+    void setClassesPerJar(int classesPerJar) {
+        if (classesPerJar < 1) throw new IllegalArgumentException("Classes per JAR must be positive: " + classesPerJar);
+        this.classesPerJar = classesPerJar;
+    }
+
+    /**
+     * @param fanOut number of generated classes referenced by each class, at least 1
+     */
+    void setFanOut(int fanOut) {
+        if (fanOut < 1) throw new IllegalArgumentException("Fan-out must be positive: " + fanOut);
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @param cycleDensity probability of a reference pointing back to an earlier class, closing a cycle
+     */
+    void setCycleDensity(double cycleDensity) {
+        this.cycleDensity = probability(cycleDensity);
+    }
+
+    /**
+     * @param genericDensity probability of a reference appearing only as a type argument of a field signature
+     */
+    void setGenericDensity(double genericDensity) {
+        this.genericDensity = probability(genericDensity);
+    }
+
+    /**
+     * @param annotationDensity probability of a class carrying one of the generated annotations
+     */
+    void setAnnotationDensity(double annotationDensity) {
+        this.annotationDensity = probability(annotationDensity);
+    }
+
+    /**
+     * @param missingClassCount number of classes referenced but left out of the classpath
+     */
+    void setMissingClassCount(int missingClassCount) {
+        if (missingClassCount < 0) throw new IllegalArgumentException("Missing class count must not be negative");
+        this.missingClassCount = missingClassCount;
+    }
+
+    /**
+     * @param seed seed of the random choices
+     */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    private static double probability(double value) {
+        if (value < 0 || value > 1) throw new IllegalArgumentException("Not a probability: " + value);
+        return value;
+    }
+
+    /**
+     * @return name of the class every generated class is reachable from
+     */
+    String getRootClassName() {
+        return className(0).replace('/', '.');
+    }
+
+    /**
+     * @return names of the classes referenced but left out of the classpath, all reachable from the root class
+     */
+    Set<String> getMissingClasses() {
+        Set<String> classes = new HashSet<>();
+        for (int i = 0; i < missingClassCount; i++) {
+            classes.add(missingClassName(i).replace('/', '.'));
+        }
+        return classes;
+    }
+
+    /**
+     * Writes the JAR files of the classpath, replacing existing ones
+     * @param directory directory to write the JAR files to, created if needed
+     * @return paths of the JAR files in classpath order
+     * @throws IOException if an I/O error has occurred
+     */
+    List<String> generate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Random random = new Random(seed);
+        // each missing class is referenced by one random class
+        Map<Integer, List<Integer>> missingReferences = new HashMap<>();
+        for (int i = 0; i < missingClassCount; i++) {
+            missingReferences.computeIfAbsent(random.nextInt(classCount), c -> new ArrayList<>()).add(i);
+        }
+        List<String> jars = new ArrayList<>();
+        int jarCount = (classCount + classesPerJar - 1) / classesPerJar;
+        for (int jar = 0; jar < jarCount; jar++) {
+            Path file = directory.resolve("synthetic-" + jar + ".jar");
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(file))) {
+                if (jar == 0) {
+                    for (int i = 0; i < ANNOTATION_COUNT; i++) {
+                        write(out, annotationName(i), generateAnnotation(i));
+                    }
+                }
+                int end = Math.min(classCount, (jar + 1) * classesPerJar);
+                for (int id = jar * classesPerJar; id < end; id++) {
+                    write(out, className(id),
+                            generateClass(id, random, missingReferences.getOrDefault(id, List.of())));
+                }
+            }
+            jars.add(file.toString());
+        }
+        return jars;
+    }
+
+    private static void write(JarOutputStream out, String internalName, byte[] bytes) throws IOException {
+        JarEntry entry = new JarEntry(internalName + ".class");
+        entry.setTime(ENTRY_TIME);
+        out.putNextEntry(entry);
+        out.write(bytes);
+        out.closeEntry();
+    }
+
+    private static String className(int id) {
+        return PACKAGE + "p" + id / CLASSES_PER_PACKAGE + "/C" + id;
+    }
+
+    private static String annotationName(int id) {
+        return PACKAGE + "annotations/A" + id;
+    }
+
+    private static String missingClassName(int id) {
+        return PACKAGE + "missing/M" + id;
+    }
+
+    private byte[] generateClass(int id, Random random, List<Integer> missing) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, className(id), null, "java/lang/Object", null);
+        if (random.nextDouble() < annotationDensity) {
+            writer.visitAnnotation("L" + annotationName(random.nextInt(ANNOTATION_COUNT)) + ";", true).visitEnd();
+        }
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()V", null, null);
+        method.visitCode();
+        for (int k = 0; k < fanOut; k++) {
+            int target = target(id, k, random);
+            if (target < 0) continue;
+            String name = className(target);
+            if (random.nextDouble() < genericDensity) {
+                // only visible through the field signature
+                writer.visitField(Opcodes.ACC_PRIVATE, "g" + k, "Ljava/util/List;",
+                        "Ljava/util/List<L" + name + ";>;", null).visitEnd();
+                continue;
+            }
+            switch (k % 3) {
+                case 0 -> method.visitMethodInsn(Opcodes.INVOKESTATIC, name, "run", "()V", false);
+                case 1 -> writer.visitField(Opcodes.ACC_PRIVATE, "f" + k, "L" + name + ";", null, null).visitEnd();
+                default -> {
+                    method.visitInsn(Opcodes.ACONST_NULL);
+                    method.visitTypeInsn(Opcodes.CHECKCAST, name);
+                    method.visitInsn(Opcodes.POP);
+                }
+            }
+        }
+        for (int m : missing) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, missingClassName(m), "run", "()V", false);
+        }
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * @return referenced class of the k-th reference of a class or -1 if there is none
+     */
+    private int target(int id, int k, Random random) {
+        if (k == 0) {
+            // the chain keeps every class reachable
+            return id + 1 < classCount ? id + 1 : -1;
+        }
+        if (id > 0 && random.nextDouble() < cycleDensity) {
+            return random.nextInt(id);
+        }
+        return id + 1 < classCount ? id + 1 + random.nextInt(classCount - id - 1) : -1;
+    }
+
+    private static byte[] generateAnnotation(int id) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ANNOTATION | Opcodes.ACC_INTERFACE
+                | Opcodes.ACC_ABSTRACT, annotationName(id), null, "java/lang/Object",
+                new String[] {"java/lang/annotation/Annotation"});
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            System.out.println("Usage: ClasspathGenerator <directory> [--classes <n>] [--classes-per-jar <n>] "
+                    + "[--fan-out <n>] [--cycles <d>] [--generics <d>] [--annotations <d>] [--missing <n>] [--seed <n>]");
+            return;
+        }
+        ClasspathGenerator generator = new ClasspathGenerator();
+        for (int i = 1; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--classes" -> generator.setClassCount(Integer.parseInt(value));
+                case "--classes-per-jar" -> generator.setClassesPerJar(Integer.parseInt(value));
+                case "--fan-out" -> generator.setFanOut(Integer.parseInt(value));
+                case "--cycles" -> generator.setCycleDensity(Double.parseDouble(value));
+                case "--generics" -> generator.setGenericDensity(Double.parseDouble(value));
+                case "--annotations" -> generator.setAnnotationDensity(Double.parseDouble(value));
+                case "--missing" -> generator.setMissingClassCount(Integer.parseInt(value));
+                case "--seed" -> generator.setSeed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        List<String> jars = generator.generate(Path.of(args[0]));
+        System.out.println("Root class: " + generator.getRootClassName());
+        System.out.println("Classpath: " + String.join(" ", jars));
+    }
+}
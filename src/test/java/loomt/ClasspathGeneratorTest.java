@@ -0,0 +1,59 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClasspathGeneratorTest {
+    private static ClasspathGenerator generator() {
+        ClasspathGenerator generator = new ClasspathGenerator();
+        generator.setClassCount(5_000);
+        generator.setClassesPerJar(700);
+        generator.setCycleDensity(0.2);
+        generator.setGenericDensity(0.3);
+        generator.setAnnotationDensity(0.3);
+        generator.setMissingClassCount(25);
+        return generator;
+    }
+
+    @Test
+    void reportsExactlyTheMissingClasses(@TempDir Path directory) throws IOException {
+        ClasspathGenerator generator = generator();
+        List<String> jars = generator.generate(directory);
+        assertEquals(8, jars.size());
+        for (AnalysisMode mode : AnalysisMode.values()) {
+            for (int parallelism : new int[] {1, 4}) {
+                try (DependencyChecker checker = new DependencyChecker()) {
+                    checker.setAnalysisMode(mode);
+                    checker.setParallelism(parallelism);
+                    Set<String> missing = new HashSet<>();
+                    for (MissingClass missingClass : checker.findMissingClasses(generator.getRootClassName(), jars)) {
+                        missing.add(missingClass.className());
+                    }
+                    assertEquals(generator.getMissingClasses(), missing, mode + " " + parallelism);
+                }
+            }
+        }
+    }
+
+    @Test
+    void generatesSameJarsForSameSeed(@TempDir Path directory) throws IOException {
+        List<String> first = generator().generate(directory.resolve("first"));
+        List<String> second = generator().generate(directory.resolve("second"));
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(-1L, Files.mismatch(Path.of(first.get(i)), Path.of(second.get(i))));
+        }
+        ClasspathGenerator other = generator();
+        other.setSeed(7);
+        List<String> third = other.generate(directory.resolve("third"));
+        assertNotEquals(-1L, Files.mismatch(Path.of(first.get(0)), Path.of(third.get(0))));
+    }
+}
@@ -0,0 +1,244 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClasspathIndexTest {
+    private final String jarPath = "build/resources/test/";
+
+    @Test
+    void findsClassesOfAllJars() throws IOException {
+        try (ClasspathIndex index = new ClasspathIndex(
+                List.of(new File(jarPath + "ModuleA-1.0.jar"), new File(jarPath + "ModuleB-1.0.jar")))) {
+            assertNotNull(index.find("com.jetbrains.internship2024.ClassA"));
+            assertNotNull(index.find("com.jetbrains.internship2024.ClassB"));
+            assertNull(index.find("com.jetbrains.internship2024.OnePiece"));
+        }
+    }
+
+    @Test
+    void recordsShadowedClasses(@TempDir Path directory) throws IOException {
+        File moduleA = new File(jarPath + "ModuleA-1.0.jar");
+        File copy = Files.copy(moduleA.toPath(), directory.resolve("ModuleA-copy.jar")).toFile();
+        try (ClasspathIndex index = new ClasspathIndex(List.of(moduleA, new File(jarPath + "ModuleB-1.0.jar"),
+                copy))) {
+            List<ClasspathIndex.ClassLocation> shadowed =
+                    index.getShadowedClasses().get("com/jetbrains/internship2024/ClassA");
+            assertEquals(1, shadowed.size());
+            assertEquals(2, shadowed.get(0).sourceIndex());
+            assertEquals(0, index.find("com.jetbrains.internship2024.ClassA").sourceIndex());
+            assertFalse(index.getShadowedClasses().containsKey("com/jetbrains/internship2024/ClassB"));
+        }
+    }
+
+    @Test
+    void firstJarWins() throws IOException {
+        File moduleA = new File(jarPath + "ModuleA-1.0.jar");
+        try (ClasspathIndex index = new ClasspathIndex(List.of(moduleA, moduleA))) {
+            ClasspathIndex.ClassLocation location = index.find("com.jetbrains.internship2024.ClassA");
+            assertEquals("com/jetbrains/internship2024/ClassA.class", location.entry());
+        }
+    }
+
+    @Test
+    void findsClassesOfDirectory(@TempDir Path directory) throws IOException {
+        extract(Path.of(jarPath + "ModuleA-1.0.jar"), directory);
+        try (ClasspathIndex index = new ClasspathIndex(List.of(directory.toFile()))) {
+            ClasspathIndex.ClassLocation location = index.find("com.jetbrains.internship2024.ClassA");
+            assertEquals("com/jetbrains/internship2024/ClassA.class", location.entry());
+            try (InputStream in = index.open(location)) {
+                assertEquals(0xCAFEBABE, new DataInputStream(in).readInt());
+            }
+        }
+    }
+
+    @Test
+    void renamedClassFileMakesDirectoryStale(@TempDir Path directory) throws IOException {
+        extract(Path.of(jarPath + "ModuleA-1.0.jar"), directory);
+        try (ClassSource source = ClassSource.open(directory.toFile())) {
+            assertFalse(source.isStale());
+            // same count, total size and modification times, only a name differs
+            Path classFile = directory.resolve("com/jetbrains/internship2024/ClassA.class");
+            Files.move(classFile, classFile.resolveSibling("Renamed.class"));
+            assertTrue(source.isStale());
+        }
+    }
+
+    @Test
+    void findsClassesOfNestedJars(@TempDir Path directory) throws IOException {
+        Path fatJar = fatJar(directory.resolve("app.jar"), Path.of(jarPath + "ModuleB-1.0.jar"),
+                Path.of(jarPath + "ModuleA-1.0.jar"));
+        try (ClasspathIndex index = new ClasspathIndex(List.of(fatJar.toFile()))) {
+            // classes of the fat JAR itself are found by their plain names
+            assertEquals("BOOT-INF/classes/com/jetbrains/internship2024/ClassB.class",
+                    index.find("com.jetbrains.internship2024.ClassB").entry());
+            ClasspathIndex.ClassLocation location = index.find("com.jetbrains.internship2024.ClassA");
+            assertFalse(location.source().isRandomAccess());
+            try (InputStream in = index.open(location)) {
+                assertEquals(0xCAFEBABE, new DataInputStream(in).readInt());
+            }
+            assertNull(index.find("com.jetbrains.internship2024.OnePiece"));
+        }
+    }
+
+    @Test
+    void storedNestedJarsHaveRandomAccess(@TempDir Path directory) throws IOException {
+        Path fatJar = directory.resolve("app.jar");
+        byte[] library = Files.readAllBytes(Path.of(jarPath + "ModuleA-1.0.jar"));
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(fatJar))) {
+            out.putNextEntry(ZipArchiveTest.storedEntry("BOOT-INF/lib/ModuleA-1.0.jar", library));
+            out.write(library);
+            out.closeEntry();
+        }
+        try (ClasspathIndex index = new ClasspathIndex(List.of(fatJar.toFile()))) {
+            ClasspathIndex.ClassLocation location = index.find("com.jetbrains.internship2024.ClassA");
+            assertTrue(location.source().isRandomAccess());
+            try (InputStream in = index.open(location)) {
+                assertEquals(0xCAFEBABE, new DataInputStream(in).readInt());
+            }
+        }
+    }
+
+    @Test
+    void truncatedMappedJarFailsWithIOException(@TempDir Path directory) throws IOException {
+        Path jar = directory.resolve("large.jar");
+        byte[] padding = new byte[ZipArchive.HEAP_LIMIT];
+        byte[] classFile = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(ZipArchiveTest.storedEntry("padding.bin", padding));
+            out.write(padding);
+            out.putNextEntry(ZipArchiveTest.storedEntry("a/A.class", classFile));
+            out.write(classFile);
+        }
+        try (ClassSource source = ClassSource.open(jar.toFile())) {
+            try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.WRITE)) {
+                channel.truncate(4096);
+            }
+            assertTrue(source.isStale());
+            assertThrows(IOException.class, () -> source.open("a/A.class").close());
+        }
+    }
+
+    @Test
+    void findsClassesOfJmod(@TempDir Path directory) throws IOException {
+        Path jmod = directory.resolve("module.jmod");
+        try (OutputStream out = Files.newOutputStream(jmod)) {
+            out.write(new byte[] {'J', 'M', 1, 0});
+            try (JarOutputStream jar = new JarOutputStream(out);
+                 JarFile moduleA = new JarFile(jarPath + "ModuleA-1.0.jar")) {
+                copyEntries(moduleA, jar, "classes/");
+            }
+        }
+        try (ClasspathIndex index = new ClasspathIndex(List.of(jmod.toFile()))) {
+            ClasspathIndex.ClassLocation location = index.find("com.jetbrains.internship2024.ClassA");
+            assertEquals("classes/com/jetbrains/internship2024/ClassA.class", location.entry());
+            try (InputStream in = index.open(location)) {
+                assertEquals(0xCAFEBABE, new DataInputStream(in).readInt());
+            }
+        }
+    }
+
+    @Test
+    void replacedSourceMatchesNewIndex(@TempDir Path directory) throws IOException {
+        Path moduleA = Path.of(jarPath + "ModuleA-1.0.jar");
+        Path moduleB = Path.of(jarPath + "ModuleB-1.0.jar");
+        Path fatJar = fatJar(directory.resolve("app.jar"), moduleB, moduleA);
+        Path copy = Files.copy(moduleA, directory.resolve("ModuleA-copy.jar"));
+        List<ClassSource> sources = new ArrayList<>();
+        for (Path path : List.of(moduleA, moduleB, fatJar, copy, moduleB, fatJar)) {
+            sources.add(ClassSource.open(path.toFile()));
+        }
+        try {
+            ClasspathIndex index = new ClasspathIndex(sources.subList(0, 4), false);
+            Set<String> changed = index.replaceSource(0, sources.get(4));
+            assertTrue(changed.contains("com/jetbrains/internship2024/ClassA"));
+            assertTrue(changed.contains("com/jetbrains/internship2024/ClassB"));
+            index.replaceSource(2, sources.get(5));
+            List<ClassSource> replaced = List.of(sources.get(4), sources.get(1), sources.get(5), sources.get(3));
+            ClasspathIndex expected = new ClasspathIndex(replaced, false);
+            assertEquals(replaced, index.getSources());
+            assertEquals(expected.size(), index.size());
+            assertEquals(expected.getShadowedClasses(), index.getShadowedClasses());
+            for (ClassSource source : replaced) {
+                Set<String> classNames = new HashSet<>();
+                ClasspathIndex.collectClassNames(source, classNames);
+                for (String className : classNames) {
+                    assertEquals(expected.find(className), index.find(className), className);
+                }
+            }
+            assertEquals(0, index.find("com.jetbrains.internship2024.ClassB").sourceIndex());
+            assertEquals(2, index.find("com.jetbrains.internship2024.ClassA").sourceIndex());
+        } finally {
+            for (ClassSource source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Extracts the entries of a JAR file into a directory
+     */
+    static void extract(Path jar, Path directory) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (entry.isDirectory()) continue;
+                Path file = directory.resolve(entry.getName());
+                Files.createDirectories(file.getParent());
+                try (InputStream in = jarFile.getInputStream(entry)) {
+                    Files.copy(in, file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a Spring Boot style fat JAR with the classes of one JAR and others as nested libraries
+     */
+    static Path fatJar(Path fatJar, Path classes, Path... libraries) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(fatJar));
+             JarFile classesJar = new JarFile(classes.toFile())) {
+            copyEntries(classesJar, out, "BOOT-INF/classes/");
+            for (Path library : libraries) {
+                out.putNextEntry(new JarEntry("BOOT-INF/lib/" + library.getFileName()));
+                Files.copy(library, out);
+                out.closeEntry();
+            }
+        }
+        return fatJar;
+    }
+
+    private static void copyEntries(JarFile jar, JarOutputStream out, String prefix) throws IOException {
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (entry.isDirectory() || entry.getName().startsWith("META-INF/")) continue;
+            out.putNextEntry(new JarEntry(prefix + entry.getName()));
+            try (InputStream in = jar.getInputStream(entry)) {
+                in.transferTo(out);
+            }
+            out.closeEntry();
+        }
+    }
+}
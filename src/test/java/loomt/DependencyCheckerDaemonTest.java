@@ -0,0 +1,112 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyCheckerDaemonTest {
+    private final String jarPath = new File("build/resources/test/").getAbsolutePath() + File.separator;
+
+    @Test
+    void answersChecksUntilShutdown() throws Exception {
+        try (DependencyChecker checker = new DependencyChecker();
+             DependencyCheckerDaemon daemon = new DependencyCheckerDaemon(checker, 0)) {
+            Thread server = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+
+            List<String> request = List.of(DependencyCheckerDaemon.CHECK, "com.jetbrains.internship2024.ClassB",
+                    jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar");
+            // the second request is answered from the JAR files kept in memory
+            for (int i = 0; i < 2; i++) {
+                assertEquals(List.of("All required dependencies are satisfied."),
+                        DependencyCheckerDaemon.send(daemon.getPort(), request));
+            }
+            assertEquals(List.of("Class not found: com.jetbrains.internship2024.ClassA"),
+                    DependencyCheckerDaemon.send(daemon.getPort(), List.of(DependencyCheckerDaemon.CHECK,
+                            "com.jetbrains.internship2024.ClassB", jarPath + "ModuleB-1.0.jar")));
+
+            DependencyCheckerDaemon.send(daemon.getPort(), List.of(DependencyCheckerDaemon.SHUTDOWN));
+            server.join(10_000);
+            assertFalse(server.isAlive());
+        }
+    }
+
+    @Test
+    void keepsServingAfterFailedCheck(@TempDir Path directory) throws Exception {
+        Path corrupt = directory.resolve("corrupt.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(corrupt))) {
+            out.putNextEntry(new JarEntry("com/jetbrains/internship2024/ClassB.class"));
+            out.write(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 61, 0, 42});
+            out.closeEntry();
+        }
+        try (DependencyChecker checker = new DependencyChecker();
+             DependencyCheckerDaemon daemon = new DependencyCheckerDaemon(checker, 0)) {
+            Thread server = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+
+            List<String> response = DependencyCheckerDaemon.send(daemon.getPort(), List.of(
+                    DependencyCheckerDaemon.CHECK, "com.jetbrains.internship2024.ClassB", corrupt.toString()));
+            assertEquals(1, response.size());
+            assertTrue(response.get(0).startsWith("Check failed: "), response.get(0));
+            assertEquals(List.of("All required dependencies are satisfied."),
+                    DependencyCheckerDaemon.send(daemon.getPort(), List.of(DependencyCheckerDaemon.CHECK,
+                            "com.jetbrains.internship2024.ClassB", jarPath + "ModuleA-1.0.jar",
+                            jarPath + "ModuleB-1.0.jar")));
+
+            DependencyCheckerDaemon.send(daemon.getPort(), List.of(DependencyCheckerDaemon.SHUTDOWN));
+            server.join(10_000);
+            assertFalse(server.isAlive());
+        }
+    }
+
+    @Test
+    void idleClientDoesNotBlockLaterRequests() throws Exception {
+        try (DependencyChecker checker = new DependencyChecker();
+             DependencyCheckerDaemon daemon = new DependencyCheckerDaemon(checker, 0, 200)) {
+            Thread server = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+
+            // connects but never sends its request
+            try (Socket idle = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+                assertEquals(List.of("All required dependencies are satisfied."),
+                        DependencyCheckerDaemon.send(daemon.getPort(), List.of(DependencyCheckerDaemon.CHECK,
+                                "com.jetbrains.internship2024.ClassB", jarPath + "ModuleA-1.0.jar",
+                                jarPath + "ModuleB-1.0.jar")));
+                assertEquals(-1, idle.getInputStream().read());
+            }
+
+            DependencyCheckerDaemon.send(daemon.getPort(), List.of(DependencyCheckerDaemon.SHUTDOWN));
+            server.join(10_000);
+            assertFalse(server.isAlive());
+        }
+    }
+}
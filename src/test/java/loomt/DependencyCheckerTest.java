@@ -1,10 +1,28 @@
 package loomt;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -318,4 +336,617 @@ class DependencyCheckerTest {
         assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ExtendsA",
                 List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar")).isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void parallelMissingDependency() throws Exception {
+        checker.setParallelism(4);
+        assertEquals(new DependencyChecker().checkDependencies("com.jetbrains.internship2024.ClassB",
+                        List.of(jarPath + "ModuleB-1.0.jar")),
+                checker.checkDependencies("com.jetbrains.internship2024.ClassB",
+                        List.of(jarPath + "ModuleB-1.0.jar")));
+    }
+
+    @Test
+    void parallelNotMissingDependency() throws Exception {
+        checker.setParallelism(4);
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.SomeAnotherClass",
+                List.of(jarPath + "ModuleA-1.0.jar", jarPath + "commons-io-2.16.1.jar")).isEmpty());
+    }
+
+    @Test
+    void parallelFileNotFound() {
+        checker.setParallelism(4);
+        assertThrows(IOException.class,
+                () -> checker.checkDependencies("com.jetbrains.internship2024.ClassA",
+                List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleC-1.0.jar")));
+    }
+
+    @Test
+    void fastMissingDependency() throws Exception {
+        checker.setAnalysisMode(AnalysisMode.FAST);
+        assertFalse(checker.checkDependencies("com.jetbrains.internship2024.ClassBChild",
+                List.of(jarPath + "ModuleB-1.0.jar")).isEmpty());
+    }
+
+    @Test
+    void fastNotMissingDependency() throws Exception {
+        checker.setAnalysisMode(AnalysisMode.FAST);
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassBComplexTemplate",
+                List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar")).isEmpty());
+    }
+
+    @Test
+    void fastAnnotationNoDependency() throws Exception {
+        checker.setAnalysisMode(AnalysisMode.FAST);
+        assertFalse(checker.checkDependencies("com.jetbrains.internship2024.annotations.Field",
+                List.of(jarPath + "ModuleB-1.0.jar")).isEmpty());
+    }
+
+    @Test
+    void platformClassFilter() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        List<String> excluded = Stream.concat(PlatformClassFilter.DEFAULT_PLATFORM_PACKAGES.stream(),
+                Stream.of("com.jetbrains.*")).toList();
+        assertFalse(checker.checkDependencies("com.jetbrains.internship2024.ClassB", jars).isEmpty());
+        checker.setPlatformClassFilter(PlatformClassFilter.of(excluded, List.of()));
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB", jars).isEmpty());
+        // references analyzed with the previous filter must not be reused
+        checker.setPlatformClassFilter(PlatformClassFilter.of(excluded, List.of("com.jetbrains.internship2024")));
+        assertFalse(checker.checkDependencies("com.jetbrains.internship2024.ClassB", jars).isEmpty());
+    }
+
+    @Test
+    void runtimeImagePlatformClassFilter() throws Exception {
+        checker.setPlatformClassFilter(PlatformClassFilter.of(PlatformClassFilter.runtimeImagePackages(null),
+                List.of()));
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB",
+                List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar")).isEmpty());
+    }
+
+    @Test
+    void allMissingClasses() throws Exception {
+        List<MissingClass> missingClasses = checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                List.of(jarPath + "ModuleB-1.0.jar"));
+        assertTrue(missingClasses.contains(new MissingClass("com.jetbrains.internship2024.ClassA",
+                "com.jetbrains.internship2024.ClassBComplexTemplate")));
+        assertTrue(missingClasses.contains(new MissingClass("com.jetbrains.internship2024.ClassAChild",
+                "com.jetbrains.internship2024.ClassBComplexTemplate")));
+        assertEquals(missingClasses.size(), missingClasses.stream().distinct().count());
+    }
+
+    @Test
+    void allMissingClassesMainClassNotFound() throws Exception {
+        assertEquals(List.of(new MissingClass("com.jetbrains.internship2024.OnePiece", null)),
+                checker.findMissingClasses("com.jetbrains.internship2024.OnePiece",
+                        List.of(jarPath + "ModuleA-1.0.jar")));
+    }
+
+    @Test
+    void allMissingClassesNone() throws Exception {
+        assertTrue(checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar")).isEmpty());
+    }
+
+    @Test
+    void parallelAllMissingClasses() throws Exception {
+        List<MissingClass> expected = checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                List.of(jarPath + "ModuleB-1.0.jar"));
+        checker.setParallelism(4);
+        assertEquals(expected, checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                List.of(jarPath + "ModuleB-1.0.jar")));
+    }
+
+    @Test
+    void cachedRunsGiveSameResult(@TempDir Path cacheDirectory) throws Exception {
+        Set<MissingClass> expected = new HashSet<>(checker.findMissingClasses(
+                "com.jetbrains.internship2024.ClassBComplexTemplate", List.of(jarPath + "ModuleB-1.0.jar")));
+        checker.setCacheDirectory(cacheDirectory);
+        // the first run fills the cache, the second one reads it
+        for (int run = 0; run < 2; run++) {
+            assertEquals(expected, new HashSet<>(checker.findMissingClasses(
+                    "com.jetbrains.internship2024.ClassBComplexTemplate", List.of(jarPath + "ModuleB-1.0.jar"))));
+        }
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void cachedNotMissingDependency(@TempDir Path cacheDirectory) throws Exception {
+        checker.setCacheDirectory(cacheDirectory);
+        for (int run = 0; run < 2; run++) {
+            assertTrue(checker.checkDependencies("com.jetbrains.internship2024.SomeAnotherClass",
+                    List.of(jarPath + "ModuleA-1.0.jar", jarPath + "commons-io-2.16.1.jar")).isEmpty());
+        }
+    }
+
+    @Test
+    void changedJarIsReopened(@TempDir Path directory) throws Exception {
+        Path jar = directory.resolve("Module.jar");
+        Files.copy(Path.of(jarPath + "ModuleB-1.0.jar"), jar);
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB", List.of(jar.toString()))
+                .isPresent());
+        // replace the JAR with one that has no ClassB
+        Files.copy(Path.of(jarPath + "ModuleA-1.0.jar"), jar, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertEquals("com.jetbrains.internship2024.ClassB",
+                checker.checkDependencies("com.jetbrains.internship2024.ClassB", List.of(jar.toString())).get());
+        checker.close();
+    }
+
+    @Test
+    void deletedJarIsClosed(@TempDir Path directory) throws Exception {
+        Path jar = Files.copy(Path.of(jarPath + "ModuleB-1.0.jar"), directory.resolve("Module.jar"));
+        checker.checkDependencies("com.jetbrains.internship2024.ClassB",
+                List.of(jarPath + "ModuleA-1.0.jar", jar.toString()));
+        assertEquals(0, checker.closeStaleSources());
+        Files.delete(jar);
+        assertEquals(1, checker.closeStaleSources());
+        assertEquals(0, checker.closeStaleSources());
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB",
+                List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar")).isEmpty());
+        checker.close();
+    }
+
+    @Test
+    void batchMissingClassesPerRoot() throws Exception {
+        Map<String, List<MissingClass>> missingClasses = checker.findMissingClasses(List.of(
+                "com.jetbrains.internship2024.ClassBComplexTemplate",
+                "com.jetbrains.internship2024.ClassB1",
+                "com.jetbrains.internship2024.OnePiece"),
+                List.of(jarPath + "ModuleB-1.0.jar"));
+        assertEquals(List.of("com.jetbrains.internship2024.ClassBComplexTemplate",
+                "com.jetbrains.internship2024.ClassB1", "com.jetbrains.internship2024.OnePiece"),
+                List.copyOf(missingClasses.keySet()));
+        assertEquals(new HashSet<>(checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                        List.of(jarPath + "ModuleB-1.0.jar"))),
+                new HashSet<>(missingClasses.get("com.jetbrains.internship2024.ClassBComplexTemplate")));
+        assertTrue(missingClasses.get("com.jetbrains.internship2024.ClassB1").isEmpty());
+        assertEquals(List.of(new MissingClass("com.jetbrains.internship2024.OnePiece", null)),
+                missingClasses.get("com.jetbrains.internship2024.OnePiece"));
+    }
+
+    @Test
+    void batchMatchesSingleRootChecks() throws Exception {
+        List<String> roots = List.of("com.jetbrains.internship2024.ClassB", "com.jetbrains.internship2024.ClassBChild",
+                "com.jetbrains.internship2024.ClassB1", "com.jetbrains.internship2024.record.HasRecordB",
+                "com.jetbrains.internship2024.annotations.Field", "com.jetbrains.internship2024.ImplementsA");
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        Map<String, List<MissingClass>> batch = checker.findMissingClasses(roots, jars);
+        for (String root : roots) {
+            Set<String> expected = new HashSet<>();
+            checker.findMissingClasses(root, jars).forEach(m -> expected.add(m.className()));
+            Set<String> actual = new HashSet<>();
+            batch.get(root).forEach(m -> actual.add(m.className()));
+            assertEquals(expected, actual, root);
+        }
+    }
+
+    @Test
+    void fatJarGivesSameResult(@TempDir Path directory) throws Exception {
+        Path fatJar = ClasspathIndexTest.fatJar(directory.resolve("app.jar"), Path.of(jarPath + "ModuleB-1.0.jar"),
+                Path.of(jarPath + "ModuleA-1.0.jar"));
+        for (String mainClassName : List.of("com.jetbrains.internship2024.ClassB",
+                "com.jetbrains.internship2024.ClassBComplexTemplate", "com.jetbrains.internship2024.ClassB1")) {
+            assertEquals(checker.checkDependencies(mainClassName,
+                            List.of(jarPath + "ModuleB-1.0.jar", jarPath + "ModuleA-1.0.jar")),
+                    checker.checkDependencies(mainClassName, List.of(fatJar.toString())), mainClassName);
+        }
+    }
+
+    @Test
+    void cachedFatJar(@TempDir Path directory) throws Exception {
+        Path fatJar = ClasspathIndexTest.fatJar(directory.resolve("app.jar"), Path.of(jarPath + "ModuleA-1.0.jar"),
+                Path.of(jarPath + "commons-io-2.16.1.jar"));
+        checker.setCacheDirectory(directory.resolve("cache"));
+        for (int run = 0; run < 2; run++) {
+            assertTrue(checker.checkDependencies("com.jetbrains.internship2024.SomeAnotherClass",
+                    List.of(fatJar.toString())).isEmpty());
+        }
+        // the fat JAR and its nested library are cached separately
+        try (Stream<Path> files = Files.list(directory.resolve("cache"))) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void classDirectoryGivesSameResult(@TempDir Path directory) throws Exception {
+        ClasspathIndexTest.extract(Path.of(jarPath + "ModuleB-1.0.jar"), directory);
+        assertEquals(new HashSet<>(checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                        List.of(jarPath + "ModuleB-1.0.jar"))),
+                new HashSet<>(checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate",
+                        List.of(directory.toString()))));
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB",
+                List.of(directory.toString(), jarPath + "ModuleA-1.0.jar")).isEmpty());
+    }
+
+    @Test
+    void boundedReferenceCacheGivesSameResult() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar",
+                jarPath + "commons-io-2.16.1.jar");
+        Set<MissingClass> expected = new HashSet<>(
+                checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate", jars));
+        // a cache too small to keep anything parses every class again
+        checker.setReferenceCacheSize(0);
+        for (int run = 0; run < 2; run++) {
+            assertEquals(expected, new HashSet<>(
+                    checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate", jars)));
+        }
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.SomeAnotherClass", jars).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> checker.setReferenceCacheSize(-1));
+    }
+
+    @Test
+    void metricsOfRepeatedCalls() throws Exception {
+        List<CheckMetrics> metrics = new ArrayList<>();
+        checker.setMetricsListener(metrics::add);
+        List<String> jars = List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar");
+        for (int run = 0; run < 2; run++) {
+            assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB", jars).isEmpty());
+        }
+        assertEquals(2, metrics.size());
+        CheckMetrics first = metrics.get(0);
+        assertEquals(1, first.rootCount());
+        assertEquals(2, first.sourcesOpened());
+        assertTrue(first.classesParsed() > 0);
+        assertTrue(first.bytesRead() > 0);
+        assertEquals(first.classesParsed(), first.referenceMisses());
+        assertTrue(first.classesVisited() >= first.classesParsed());
+        assertTrue(first.frontierPeak() > 0);
+        assertTrue(first.totalNanos() >= first.indexNanos() + first.readNanos() + first.parseNanos());
+        // the second call reuses the opened entries and the analyzed references
+        CheckMetrics second = metrics.get(1);
+        assertEquals(0, second.sourcesOpened());
+        assertEquals(0, second.classesParsed());
+        assertEquals(first.classesParsed(), second.referenceHits());
+        assertEquals(1.0, second.referenceHitRate());
+    }
+
+    @Test
+    void parallelMetrics() throws Exception {
+        List<CheckMetrics> metrics = new ArrayList<>();
+        checker.setMetricsListener(metrics::add);
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        checker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate", jars);
+        DependencyChecker parallelChecker = new DependencyChecker();
+        parallelChecker.setParallelism(4);
+        parallelChecker.setMetricsListener(metrics::add);
+        parallelChecker.findMissingClasses("com.jetbrains.internship2024.ClassBComplexTemplate", jars);
+        parallelChecker.close();
+        assertEquals(metrics.get(0).classesParsed(), metrics.get(1).classesParsed());
+        assertEquals(metrics.get(0).bytesRead(), metrics.get(1).bytesRead());
+        assertEquals(metrics.get(0).classesVisited(), metrics.get(1).classesVisited());
+    }
+
+    @Test
+    void cachedMetrics(@TempDir Path cacheDirectory) throws Exception {
+        List<CheckMetrics> metrics = new ArrayList<>();
+        List<String> jars = List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar");
+        for (int run = 0; run < 2; run++) {
+            try (DependencyChecker cachedChecker = new DependencyChecker()) {
+                cachedChecker.setCacheDirectory(cacheDirectory);
+                cachedChecker.setMetricsListener(metrics::add);
+                cachedChecker.checkDependencies("com.jetbrains.internship2024.ClassB", jars);
+            }
+        }
+        assertEquals(0, metrics.get(0).graphCacheHits());
+        assertEquals(2, metrics.get(0).graphCacheMisses());
+        assertTrue(metrics.get(0).classesParsed() > 0);
+        assertEquals(2, metrics.get(1).graphCacheHits());
+        assertEquals(0, metrics.get(1).graphCacheMisses());
+        assertEquals(0, metrics.get(1).classesParsed());
+    }
+
+    @Test
+    void mismatchedCacheFileIsAnalyzedAgain(@TempDir Path cacheDirectory) throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar");
+        String root = "com.jetbrains.internship2024.ClassBComplexTemplate";
+        List<MissingClass> expected = checker.findMissingClasses(root, jars);
+        try (DependencyChecker cachedChecker = new DependencyChecker()) {
+            cachedChecker.setCacheDirectory(cacheDirectory);
+            cachedChecker.findMissingClasses(root, jars);
+        }
+        // valid cache files under the right keys that do not know the classes of their sources
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                MappedDependencyGraph.write(file, Map.of());
+            }
+        }
+        for (int parallelism : new int[]{1, 4}) {
+            try (DependencyChecker cachedChecker = new DependencyChecker()) {
+                cachedChecker.setCacheDirectory(cacheDirectory);
+                cachedChecker.setParallelism(parallelism);
+                assertEquals(expected, cachedChecker.findMissingClasses(root, jars));
+            }
+        }
+    }
+
+    @Test
+    void corruptedCacheFileIsAnalyzedAgain(@TempDir Path cacheDirectory) throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar");
+        String root = "com.jetbrains.internship2024.ClassBComplexTemplate";
+        List<MissingClass> expected = checker.findMissingClasses(root, jars);
+        try (DependencyChecker cachedChecker = new DependencyChecker()) {
+            cachedChecker.setCacheDirectory(cacheDirectory);
+            cachedChecker.findMissingClasses(root, jars);
+        }
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                byte[] content = Files.readAllBytes(file);
+                // keep the header, cut the tables short
+                Files.write(file, Arrays.copyOf(content, Math.min(content.length - 1, 40)));
+            }
+        }
+        List<CheckMetrics> metrics = new ArrayList<>();
+        try (DependencyChecker cachedChecker = new DependencyChecker()) {
+            cachedChecker.setCacheDirectory(cacheDirectory);
+            cachedChecker.setMetricsListener(metrics::add);
+            assertEquals(expected, cachedChecker.findMissingClasses(root, jars));
+        }
+        assertEquals(0L, metrics.get(0).graphCacheHits());
+        assertTrue(metrics.get(0).classesParsed() > 0);
+    }
+
+    @Test
+    void metricsAreRecordedAsJfrEvents(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("check.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("loomt.DependencyCheck");
+            recording.enable("loomt.ClassSourceOpen");
+            recording.start();
+            checker.checkDependencies("com.jetbrains.internship2024.ClassB", List.of(jarPath + "ModuleB-1.0.jar"));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> checks = events.stream()
+                .filter(e -> e.getEventType().getName().equals("loomt.DependencyCheck")).toList();
+        assertEquals(1, checks.size());
+        assertEquals(1, checks.get(0).getInt("rootCount"));
+        assertTrue(checks.get(0).getLong("classesParsed") > 0);
+        assertEquals(1, events.stream()
+                .filter(e -> e.getEventType().getName().equals("loomt.ClassSourceOpen")).count());
+    }
+
+    @Test
+    void classpathUsage(@TempDir Path directory) throws Exception {
+        Path shadowed = Files.copy(Path.of(jarPath + "ModuleA-1.0.jar"), directory.resolve("ModuleA-copy.jar"));
+        List<String> jars = List.of(jarPath + "commons-io-2.16.1.jar", jarPath + "ModuleA-1.0.jar",
+                jarPath + "ModuleB-1.0.jar", shadowed.toString());
+        ClasspathUsage usage = checker.findClasspathUsage(List.of("com.jetbrains.internship2024.ClassB"), jars);
+        assertEquals(List.of(jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar"), usage.requiredJars());
+        // classes of the copy are all loaded from the first JAR defining them
+        assertEquals(List.of(jarPath + "commons-io-2.16.1.jar", shadowed.toString()), usage.unusedJars());
+        assertEquals(jarPath + "ModuleB-1.0.jar", usage.classSources().get("com.jetbrains.internship2024.ClassB"));
+        assertEquals(jarPath + "ModuleA-1.0.jar", usage.classSources().get("com.jetbrains.internship2024.ClassA"));
+        assertEquals(Map.of("com.jetbrains.internship2024.ClassB", List.of()), usage.missingClasses());
+
+        DependencyChecker parallelChecker = new DependencyChecker();
+        parallelChecker.setParallelism(4);
+        assertEquals(usage, parallelChecker.findClasspathUsage(List.of("com.jetbrains.internship2024.ClassB"), jars));
+        parallelChecker.close();
+    }
+
+    @Test
+    void classpathUsageWithMissingClasses() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar", jarPath + "ModuleA-1.0.jar");
+        ClasspathUsage usage = checker.findClasspathUsage(List.of("com.jetbrains.internship2024.ClassB",
+                "com.jetbrains.internship2024.OnePiece"), jars);
+        assertEquals(List.of(jarPath + "ModuleB-1.0.jar", jarPath + "ModuleA-1.0.jar"), usage.requiredJars());
+        assertEquals(List.of(), usage.unusedJars());
+        assertEquals(List.of(new MissingClass("com.jetbrains.internship2024.OnePiece", null)),
+                usage.missingClasses().get("com.jetbrains.internship2024.OnePiece"));
+        assertFalse(usage.classSources().containsKey("com.jetbrains.internship2024.OnePiece"));
+    }
+
+    @Test
+    void classpathUsageOfFatJar(@TempDir Path directory) throws Exception {
+        Path fatJar = ClasspathIndexTest.fatJar(directory.resolve("app.jar"), Path.of(jarPath + "ModuleB-1.0.jar"),
+                Path.of(jarPath + "ModuleA-1.0.jar"));
+        ClasspathUsage usage = checker.findClasspathUsage(List.of("com.jetbrains.internship2024.ClassB"),
+                List.of(fatJar.toString(), jarPath + "ModuleA-1.0.jar"));
+        // the nested library counts for the fat JAR containing it
+        assertEquals(List.of(fatJar.toString()), usage.requiredJars());
+        assertEquals(List.of(jarPath + "ModuleA-1.0.jar"), usage.unusedJars());
+        assertEquals(fatJar.toString(), usage.classSources().get("com.jetbrains.internship2024.ClassA"));
+    }
+
+    @Test
+    void duplicateClasses(@TempDir Path directory) throws Exception {
+        Path copy = Files.copy(Path.of(jarPath + "ModuleA-1.0.jar"), directory.resolve("ModuleA-copy.jar"));
+        Path changed = directory.resolve("ModuleA-changed.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(changed))) {
+            out.putNextEntry(new JarEntry("com/jetbrains/internship2024/ClassA.class"));
+            out.write(new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+            out.closeEntry();
+        }
+        assertEquals(List.of(), checker.findDuplicateClasses(List.of(jarPath + "ModuleA-1.0.jar",
+                jarPath + "ModuleB-1.0.jar")));
+        // the same JAR file listed twice is a single classpath entry
+        assertEquals(List.of(), checker.findDuplicateClasses(List.of(jarPath + "ModuleA-1.0.jar",
+                jarPath + "ModuleA-1.0.jar")));
+        List<DuplicateClass> duplicates = checker.findDuplicateClasses(List.of(jarPath + "ModuleA-1.0.jar",
+                jarPath + "ModuleB-1.0.jar", copy.toString(), changed.toString()));
+        DuplicateClass classA = duplicates.stream()
+                .filter(d -> d.className().equals("com.jetbrains.internship2024.ClassA")).findFirst().orElseThrow();
+        assertEquals(List.of(jarPath + "ModuleA-1.0.jar", copy.toString(), changed.toString()), classA.locations());
+        assertTrue(classA.contentDiffers());
+        // every other class of the copy is identical
+        assertTrue(duplicates.size() > 1);
+        for (DuplicateClass duplicate : duplicates) {
+            if (duplicate != classA) {
+                assertEquals(List.of(jarPath + "ModuleA-1.0.jar", copy.toString()), duplicate.locations());
+                assertFalse(duplicate.contentDiffers(), duplicate.className());
+            }
+        }
+        List<String> classNames = duplicates.stream().map(DuplicateClass::className).toList();
+        assertEquals(classNames.stream().sorted().toList(), classNames);
+    }
+
+    @Test
+    void duplicateClassesOfDirectoriesAndFatJars(@TempDir Path directory) throws Exception {
+        Path classes = Files.createDirectory(directory.resolve("classes"));
+        ClasspathIndexTest.extract(Path.of(jarPath + "ModuleA-1.0.jar"), classes);
+        Path fatJar = ClasspathIndexTest.fatJar(directory.resolve("app.jar"), Path.of(jarPath + "ModuleB-1.0.jar"),
+                Path.of(jarPath + "ModuleA-1.0.jar"));
+        List<DuplicateClass> duplicates = checker.findDuplicateClasses(List.of(classes.toString(),
+                fatJar.toString(), jarPath + "ModuleA-1.0.jar"));
+        assertFalse(duplicates.isEmpty());
+        for (DuplicateClass duplicate : duplicates) {
+            // checksums computed from the bytes match the ones of the central directories
+            assertFalse(duplicate.contentDiffers(), duplicate.className());
+            assertEquals(List.of(classes.toString(), fatJar + "!/BOOT-INF/lib/ModuleA-1.0.jar",
+                    jarPath + "ModuleA-1.0.jar"), duplicate.locations());
+        }
+    }
+
+    @Test
+    void referenceGraph() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        ReferenceGraph graph = checker.buildReferenceGraph(List.of("com.jetbrains.internship2024.ClassB"), jars);
+        assertTrue(graph.isMissing("com.jetbrains.internship2024.ClassA"));
+        assertEquals(List.of("com.jetbrains.internship2024.ClassB", "com.jetbrains.internship2024.ClassA"),
+                graph.findShortestChain("com.jetbrains.internship2024.ClassA"));
+        assertEquals(List.of("com.jetbrains.internship2024.ClassB"),
+                graph.getReferencingClasses("com.jetbrains.internship2024.ClassA"));
+        assertEquals(jars, graph.getReferencingJars("com.jetbrains.internship2024.ClassA"));
+        assertEquals(jarPath + "ModuleB-1.0.jar", graph.getJarPath("com.jetbrains.internship2024.ClassB"));
+    }
+
+    @Test
+    void referenceGraphExplainsEveryMissingClass() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        String root = "com.jetbrains.internship2024.ClassBComplexTemplate";
+        ReferenceGraph graph = checker.buildReferenceGraph(List.of(root), jars);
+        checker.setParallelism(4);
+        ReferenceGraph parallelGraph = checker.buildReferenceGraph(List.of(root), jars);
+        for (MissingClass missingClass : checker.findMissingClasses(root, jars)) {
+            List<String> chain = graph.findShortestChain(missingClass.className());
+            assertEquals(root, chain.get(0));
+            assertEquals(missingClass.className(), chain.get(chain.size() - 1));
+            assertTrue(graph.isMissing(missingClass.className()));
+            assertTrue(graph.getReferencingClasses(missingClass.className()).contains(missingClass.referencedBy()));
+            // every link of the chain is a reference
+            for (int i = 1; i < chain.size(); i++) {
+                assertTrue(graph.getReferencingClasses(chain.get(i)).contains(chain.get(i - 1)));
+            }
+            assertEquals(chain, parallelGraph.findShortestChain(missingClass.className()));
+        }
+    }
+
+    @Test
+    void exportGraphMatchesReferenceGraph() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar", jarPath + "ModuleA-1.0.jar");
+        List<String> roots = List.of("com.jetbrains.internship2024.ClassB");
+        ReferenceGraph graph = checker.buildReferenceGraph(roots, jars);
+        StringWriter out = new StringWriter();
+        checker.exportGraph(roots, jars, out, GraphFormat.JSONL, GraphLevel.CLASS);
+        int nodes = 0;
+        for (String line : out.toString().split("\n")) {
+            if (line.startsWith("{\"type\":\"node\"")) {
+                nodes++;
+                continue;
+            }
+            String[] fields = line.split("\"");
+            // every exported edge is known to the reference graph
+            assertTrue(graph.getReferencingClasses(fields[11]).contains(fields[7]), line);
+        }
+        assertTrue(graph.contains("com.jetbrains.internship2024.ClassA"));
+        assertTrue(nodes > 1);
+
+        StringWriter jarLevel = new StringWriter();
+        checker.exportGraph(roots, jars, jarLevel, GraphFormat.DOT, GraphLevel.JAR);
+        assertEquals("digraph dependencies {\n"
+                + "  \"" + jars.get(0) + "\" [jar=\"" + jars.get(0) + "\", missing=false];\n"
+                + "  \"" + jars.get(0) + "\" -> \"" + jars.get(1) + "\";\n"
+                + "  \"" + jars.get(1) + "\" [jar=\"" + jars.get(1) + "\", missing=false];\n"
+                + "}\n", jarLevel.toString());
+    }
+
+    @Test
+    void incrementalCheckOfChangedJar(@TempDir Path directory) throws Exception {
+        Path moduleA = Files.copy(Path.of(jarPath + "ModuleA-1.0.jar"), directory.resolve("ModuleA.jar"));
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar", moduleA.toString());
+        List<String> roots = List.of("com.jetbrains.internship2024.ClassB",
+                "com.jetbrains.internship2024.ClassBComplexTemplate");
+        List<CheckMetrics> metrics = new ArrayList<>();
+        checker.setIncremental(true);
+        checker.setMetricsListener(metrics::add);
+        Map<String, List<MissingClass>> complete = checker.findMissingClasses(roots, jars);
+        assertTrue(complete.get("com.jetbrains.internship2024.ClassB").isEmpty());
+
+        // a rewritten JAR with the same classes leaves every result as it was, without a traversal
+        Files.setLastModifiedTime(moduleA, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        assertEquals(complete, checker.findMissingClasses(roots, jars));
+        assertEquals(1, metrics.get(1).sourcesOpened());
+        assertEquals(0, metrics.get(1).classesVisited());
+
+        // ClassA disappears, only the reached classes of the changed JAR are analyzed again
+        Files.copy(Path.of(jarPath + "ModuleB-1.0.jar"), moduleA, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(moduleA, FileTime.fromMillis(System.currentTimeMillis() + 20_000));
+        Map<String, List<MissingClass>> changed = checker.findMissingClasses(roots, jars);
+        DependencyChecker fullChecker = new DependencyChecker();
+        assertEquals(fullChecker.findMissingClasses(roots, jars), changed);
+        assertEquals(List.of(new MissingClass("com.jetbrains.internship2024.ClassA",
+                "com.jetbrains.internship2024.ClassB")), changed.get("com.jetbrains.internship2024.ClassB"));
+        assertTrue(metrics.get(2).classesParsed() < metrics.get(0).classesParsed());
+        assertEquals(fullChecker.checkDependencies("com.jetbrains.internship2024.ClassB", jars),
+                checker.checkDependencies("com.jetbrains.internship2024.ClassB", jars));
+        fullChecker.close();
+
+        Files.copy(Path.of(jarPath + "ModuleA-1.0.jar"), moduleA, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(moduleA, FileTime.fromMillis(System.currentTimeMillis() + 30_000));
+        assertEquals(complete, checker.findMissingClasses(roots, jars));
+        assertTrue(checker.checkDependencies("com.jetbrains.internship2024.ClassB", jars).isEmpty());
+        checker.close();
+    }
+
+    @Test
+    void incrementalResultsAreCopies() throws Exception {
+        checker.setIncremental(true);
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        List<MissingClass> missingClasses = checker.findMissingClasses("com.jetbrains.internship2024.ClassB", jars);
+        assertFalse(missingClasses.isEmpty());
+        missingClasses.clear();
+        assertFalse(checker.findMissingClasses("com.jetbrains.internship2024.ClassB", jars).isEmpty());
+    }
+
+    @Test
+    void parallelExportIsStreamed() throws Exception {
+        List<String> jars = List.of(jarPath + "ModuleB-1.0.jar");
+        String root = "com.jetbrains.internship2024.ClassBComplexTemplate";
+        List<CheckMetrics> metrics = new ArrayList<>();
+        checker.setParallelism(4);
+        checker.setIncremental(true);
+        checker.setMetricsListener(metrics::add);
+        // the first line is written once the root is analyzed, before any other class is read
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("Export aborted");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertThrows(IOException.class, () -> checker.exportGraph(List.of(root), jars, failing, GraphFormat.JSONL,
+                GraphLevel.CLASS));
+        checker.findMissingClasses(root, jars);
+        CheckMetrics check = metrics.get(0);
+        assertEquals(1L, check.referenceHits());
+        assertTrue(check.referenceMisses() > 1);
+
+        StringWriter parallel = new StringWriter();
+        checker.exportGraph(List.of(root), jars, parallel, GraphFormat.JSONL, GraphLevel.CLASS);
+        DependencyChecker sequentialChecker = new DependencyChecker();
+        StringWriter sequential = new StringWriter();
+        sequentialChecker.exportGraph(List.of(root), jars, sequential, GraphFormat.JSONL, GraphLevel.CLASS);
+        sequentialChecker.close();
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+}
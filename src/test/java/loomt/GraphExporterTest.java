@@ -0,0 +1,87 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphExporterTest {
+    private static final Map<String, List<String>> REFERENCES = Map.of(
+            "a.R", List.of("a.A", "b.B", "R"),
+            "a.A", List.of("b.B", "a.A"),
+            "b.B", List.of("a.R", "c.\"C\""),
+            "R", List.of());
+    private static final Map<String, String> JARS = Map.of("a.R", "a.jar", "a.A", "a.jar", "b.B", "b&.jar",
+            "R", "a.jar");
+
+    private static String export(GraphFormat format, GraphLevel level) throws Exception {
+        StringWriter out = new StringWriter();
+        GraphExporter exporter = new GraphExporter(out, format, level, JARS::get);
+        exporter.begin();
+        new ClassGraphTraversal(className -> REFERENCES.containsKey(className)
+                ? new LinkedHashSet<>(REFERENCES.get(className)) : null).traverse(List.of("a.R"), exporter);
+        exporter.end();
+        return out.toString();
+    }
+
+    @Test
+    void classLevelJsonLines() throws Exception {
+        assertEquals("""
+                {"type":"node","id":"a.R","jar":"a.jar","missing":false}
+                {"type":"edge","source":"a.R","target":"a.A"}
+                {"type":"edge","source":"a.R","target":"b.B"}
+                {"type":"edge","source":"a.R","target":"R"}
+                {"type":"node","id":"a.A","jar":"a.jar","missing":false}
+                {"type":"edge","source":"a.A","target":"b.B"}
+                {"type":"node","id":"b.B","jar":"b&.jar","missing":false}
+                {"type":"edge","source":"b.B","target":"a.R"}
+                {"type":"edge","source":"b.B","target":"c.\\"C\\""}
+                {"type":"node","id":"R","jar":"a.jar","missing":false}
+                {"type":"node","id":"c.\\"C\\"","missing":true}
+                """, export(GraphFormat.JSONL, GraphLevel.CLASS));
+    }
+
+    @Test
+    void packageLevelMergesEdges() throws Exception {
+        assertEquals("""
+                digraph dependencies {
+                  "a";
+                  "a" -> "b";
+                  "a" -> "(default)";
+                  "b";
+                  "b" -> "a";
+                  "b" -> "c";
+                  "(default)";
+                  "c";
+                }
+                """, export(GraphFormat.DOT, GraphLevel.PACKAGE));
+    }
+
+    @Test
+    void jarLevelGathersMissingClasses() throws Exception {
+        assertEquals("""
+                {"type":"node","id":"a.jar","jar":"a.jar","missing":false}
+                {"type":"edge","source":"a.jar","target":"b&.jar"}
+                {"type":"node","id":"b&.jar","jar":"b&.jar","missing":false}
+                {"type":"edge","source":"b&.jar","target":"a.jar"}
+                {"type":"edge","source":"b&.jar","target":"(missing)"}
+                {"type":"node","id":"(missing)","missing":true}
+                """, export(GraphFormat.JSONL, GraphLevel.JAR));
+    }
+
+    @Test
+    void graphMlIsWellFormed() throws Exception {
+        String graphMl = export(GraphFormat.GRAPHML, GraphLevel.CLASS);
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new org.xml.sax.InputSource(new StringReader(graphMl)));
+        assertEquals(5, document.getElementsByTagName("node").getLength());
+        assertEquals(6, document.getElementsByTagName("edge").getLength());
+        assertTrue(graphMl.contains("<node id=\"c.&quot;C&quot;\"><data key=\"missing\">true</data></node>"));
+        assertTrue(graphMl.contains("<data key=\"jar\">b&amp;.jar</data>"));
+    }
+}
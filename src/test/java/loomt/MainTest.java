@@ -0,0 +1,48 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MainTest {
+    private final String jarPath = "build/resources/test/";
+
+    /**
+     * Runs the command line and returns what it printed to the standard output
+     */
+    private static String run(String... args) {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            Main.main(args);
+        } finally {
+            System.setOut(stdout);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void batchModeReportsFirstMissingClassOfEachRoot() {
+        String output = run("--root", "com.jetbrains.internship2024.ClassB1",
+                "--root", "com.jetbrains.internship2024.ClassB", jarPath + "ModuleB-1.0.jar");
+        assertTrue(output.contains("com.jetbrains.internship2024.ClassB1: All required dependencies are satisfied."),
+                output);
+        assertEquals(1L, output.lines().filter(line ->
+                line.startsWith("com.jetbrains.internship2024.ClassB: Class not found: ")).count(), output);
+    }
+
+    @Test
+    void batchModeWithAllDependencies() {
+        String output = run("--root", "com.jetbrains.internship2024.ClassB", "--root",
+                "com.jetbrains.internship2024.ClassA", jarPath + "ModuleA-1.0.jar", jarPath + "ModuleB-1.0.jar");
+        assertEquals("""
+                com.jetbrains.internship2024.ClassB: All required dependencies are satisfied.
+                com.jetbrains.internship2024.ClassA: All required dependencies are satisfied.
+                """, output);
+    }
+}
@@ -0,0 +1,82 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedDependencyGraphTest {
+    @TempDir
+    Path directory;
+
+    private MappedDependencyGraph writeAndOpen(Map<String, Set<String>> references) throws IOException {
+        Path file = directory.resolve("test.graph");
+        MappedDependencyGraph.write(file, references);
+        return MappedDependencyGraph.open(file);
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        MappedDependencyGraph graph = writeAndOpen(Map.of(
+                "com.a.A", Set.of("com.b.B", "com.c.\u00C7"),
+                "com.b.B", Set.of()));
+        assertEquals(3, graph.size());
+        assertEquals(Set.of("com.b.B", "com.c.\u00C7"), graph.referencesOf("com.a.A"));
+        assertEquals(Set.of(), graph.referencesOf("com.b.B"));
+        // only referenced, not defined
+        assertNull(graph.referencesOf("com.c.\u00C7"));
+        assertTrue(graph.find("com.c.\u00C7") >= 0);
+        assertEquals(-1, graph.find("com.d.D"));
+    }
+
+    @Test
+    void rejectsInvalidFile() throws IOException {
+        Path file = directory.resolve("invalid.graph");
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> MappedDependencyGraph.open(file));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = directory.resolve("test.graph");
+        MappedDependencyGraph.write(file, Map.of("A", Set.of("B", "C"), "B", Set.of("C")));
+        byte[] content = Files.readAllBytes(file);
+        for (int length : new int[]{16, 30, content.length - 1}) {
+            Files.write(file, Arrays.copyOf(content, length));
+            assertThrows(IOException.class, () -> MappedDependencyGraph.open(file));
+        }
+    }
+
+    @Test
+    void rejectsCorruptedFile() throws IOException {
+        Path file = directory.resolve("test.graph");
+        MappedDependencyGraph.write(file, Map.of("A", Set.of("B")));
+        byte[] content = Files.readAllBytes(file);
+        // header, then 3 string offsets and 3 edge offsets before the single edge
+        ByteBuffer.wrap(content).putInt(16 + 6 * Integer.BYTES, 7);
+        Files.write(file, content);
+        assertThrows(IOException.class, () -> MappedDependencyGraph.open(file));
+
+        MappedDependencyGraph.write(file, Map.of("A", Set.of("B")));
+        content = Files.readAllBytes(file);
+        // a node count overflowing the layout size
+        ByteBuffer.wrap(content).putInt(8, Integer.MAX_VALUE);
+        Files.write(file, content);
+        assertThrows(IOException.class, () -> MappedDependencyGraph.open(file));
+
+        MappedDependencyGraph.write(file, Map.of("A", Set.of("B")));
+        content = Files.readAllBytes(file);
+        // decreasing edge offsets
+        ByteBuffer.wrap(content).putInt(16 + 3 * Integer.BYTES, 1);
+        Files.write(file, content);
+        assertThrows(IOException.class, () -> MappedDependencyGraph.open(file));
+    }
+}
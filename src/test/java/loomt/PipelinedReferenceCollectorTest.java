@@ -0,0 +1,71 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelinedReferenceCollectorTest {
+    /**
+     * Graph where class i references classes 2i+1 and 2i+2, far wider than the queues between the stages
+     */
+    private static Set<String> references(String className, int size) {
+        int id = Integer.parseInt(className.substring(1));
+        Set<String> classes = new HashSet<>();
+        for (int child = 2 * id + 1; child <= 2 * id + 2; child++) {
+            // classes past the end are missing
+            classes.add("C" + (child < size + 10 ? child : 0));
+        }
+        return classes;
+    }
+
+    private static PipelinedReferenceCollector collector(int size) {
+        return new PipelinedReferenceCollector(
+                className -> Integer.parseInt(className.substring(1)) >= size ? null
+                        : new PipelinedReferenceCollector.ClassFile(className,
+                        className.getBytes(StandardCharsets.UTF_8), null),
+                classFile -> references(new String(classFile.bytes(), StandardCharsets.UTF_8), size), 2, 3);
+    }
+
+    @Test
+    void collectsAllReachableClasses() throws IOException {
+        int size = 20_000;
+        Map<String, Set<String>> references = collector(size).collect(List.of("C0"));
+        assertEquals(size, references.size());
+        for (int i = 0; i < size; i++) {
+            assertEquals(references("C" + i, size), references.get("C" + i));
+        }
+        assertNull(references.get("C" + size));
+    }
+
+    @Test
+    void passesCachedReferencesThrough() throws IOException {
+        PipelinedReferenceCollector collector = new PipelinedReferenceCollector(
+                className -> className.equals("A")
+                        ? new PipelinedReferenceCollector.ClassFile(className, null, Set.of("B"))
+                        : new PipelinedReferenceCollector.ClassFile(className, new byte[0], null),
+                classFile -> Set.of(), 1, 1);
+        assertEquals(Map.of("A", Set.of("B"), "B", Set.of()), collector.collect(List.of("A")));
+    }
+
+    @Test
+    void propagatesFailures() {
+        PipelinedReferenceCollector failingReader = new PipelinedReferenceCollector(
+                className -> {
+                    throw new IOException("cannot read " + className);
+                },
+                classFile -> Set.of(), 2, 2);
+        assertEquals("cannot read A",
+                assertThrows(IOException.class, () -> failingReader.collect(List.of("A"))).getMessage());
+
+        PipelinedReferenceCollector failingParser = new PipelinedReferenceCollector(
+                className -> new PipelinedReferenceCollector.ClassFile(className, new byte[0], null),
+                classFile -> {
+                    throw new IllegalArgumentException("malformed " + classFile.className());
+                }, 2, 2);
+        assertThrows(IllegalArgumentException.class, () -> failingParser.collect(List.of("A")));
+    }
+}
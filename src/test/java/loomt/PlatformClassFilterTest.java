@@ -0,0 +1,63 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlatformClassFilterTest {
+    @Test
+    void defaultsMatchStandardLibraryPrefixes() {
+        PlatformClassFilter filter = PlatformClassFilter.defaults();
+        assertTrue(filter.isPlatformClass("java.lang.String"));
+        assertTrue(filter.isPlatformClass("java.util.Map$Entry"));
+        assertTrue(filter.isPlatformClass("javax.inject.Inject"));
+        assertTrue(filter.isPlatformClass("jdk.internal.misc.Unsafe"));
+        assertTrue(filter.isPlatformClass("sun.misc.Unsafe"));
+        assertTrue(filter.isPlatformClass("com.sun.net.httpserver.HttpServer"));
+        assertFalse(filter.isPlatformClass("com.name.Class"));
+        assertFalse(filter.isPlatformClass("javalin.Javalin"));
+        assertFalse(filter.isPlatformClass("com.sunny.Class"));
+        assertFalse(filter.isPlatformClass("Unnamed"));
+    }
+
+    @Test
+    void mostSpecificPatternWins() {
+        PlatformClassFilter filter = PlatformClassFilter.of(List.of("javax.*", "com.name.internal.*"),
+                List.of("javax.inject", "com.name.*"));
+        assertTrue(filter.isPlatformClass("javax.swing.JFrame"));
+        assertFalse(filter.isPlatformClass("javax.inject.Inject"));
+        // exact package patterns do not match subpackages
+        assertTrue(filter.isPlatformClass("javax.inject.spi.Provider"));
+        assertFalse(filter.isPlatformClass("com.name.Class"));
+        assertTrue(filter.isPlatformClass("com.name.internal.Class"));
+        assertTrue(filter.isPlatformClass("com.name.internal.deep.Class"));
+    }
+
+    @Test
+    void includedPatternsWinTies() {
+        PlatformClassFilter filter = PlatformClassFilter.of(List.of("com.name.*"), List.of("com.name.*"));
+        assertFalse(filter.isPlatformClass("com.name.Class"));
+    }
+
+    @Test
+    void invalidPatterns() {
+        for (String pattern : List.of("", "*", ".com", "com.", "com..name", "com.*.name", "com.name*")) {
+            assertThrows(IllegalArgumentException.class, () -> PlatformClassFilter.of(List.of(pattern), List.of()));
+        }
+    }
+
+    @Test
+    void runtimeImagePackages() throws Exception {
+        List<String> packages = PlatformClassFilter.runtimeImagePackages(null);
+        assertTrue(packages.contains("java.lang"));
+        assertTrue(packages.contains("java.util.concurrent"));
+        assertFalse(packages.contains("javax.inject"));
+        PlatformClassFilter filter = PlatformClassFilter.of(packages, List.of());
+        assertTrue(filter.isPlatformClass("java.lang.String"));
+        assertTrue(filter.isPlatformClass("javax.swing.JFrame"));
+        assertFalse(filter.isPlatformClass("javax.inject.Inject"));
+        assertFalse(filter.isPlatformClass("java.lang.missing.Class"));
+    }
+}
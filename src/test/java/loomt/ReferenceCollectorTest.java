@@ -0,0 +1,95 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceCollectorTest {
+    private static final Set<String> EXPECTED = Set.of("test.Base", "test.Api", "test.Param", "test.Result",
+            "test.Failure", "test.Value", "test.FieldType", "test.Constant", "test.Lambda", "test.LambdaResult",
+            "test.Caught");
+
+    /**
+     * @return class file without debug information whose references are only named by declarations and instructions
+     */
+    private static byte[] strippedClass() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "test/Subject", null, "test/Base", new String[]{"test/Api"});
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", "(Ltest/Param;)Ltest/Result;", null,
+                new String[]{"test/Failure"});
+        method.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        method.visitTryCatchBlock(start, end, handler, "test/Caught");
+        method.visitLabel(start);
+        method.visitVarInsn(Opcodes.ALOAD, 1);
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "test/Param", "value", "()Ltest/Value;", false);
+        method.visitInsn(Opcodes.POP);
+        method.visitVarInsn(Opcodes.ALOAD, 1);
+        method.visitFieldInsn(Opcodes.GETFIELD, "test/Param", "field", "Ltest/FieldType;");
+        method.visitInsn(Opcodes.POP);
+        method.visitLdcInsn(Type.getObjectType("test/Constant"));
+        method.visitInsn(Opcodes.POP);
+        method.visitInvokeDynamicInsn("get", "()Ljava/util/function/Supplier;",
+                new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+                        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+                                + "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;"
+                                + "Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false),
+                Type.getMethodType("()Ljava/lang/Object;"),
+                new Handle(Opcodes.H_INVOKESTATIC, "test/Lambda", "create", "()Ltest/LambdaResult;", false),
+                Type.getMethodType("()Ltest/LambdaResult;"));
+        method.visitInsn(Opcodes.POP);
+        method.visitLabel(end);
+        method.visitInsn(Opcodes.ACONST_NULL);
+        method.visitInsn(Opcodes.ARETURN);
+        method.visitLabel(handler);
+        method.visitInsn(Opcodes.ATHROW);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    @Test
+    void preciseAnalysisCoversDebugStrippedClasses() {
+        Set<String> classes = DependencyChecker.readReferencedClasses(new ClassReader(strippedClass()),
+                AnalysisMode.PRECISE, new DescriptorCache());
+        Set<String> missing = new HashSet<>(EXPECTED);
+        missing.removeAll(classes);
+        assertEquals(Set.of(), missing);
+    }
+
+    @Test
+    void fastAnalysisCoversDebugStrippedClasses() {
+        Set<String> classes = DependencyChecker.readReferencedClasses(new ClassReader(strippedClass()),
+                AnalysisMode.FAST, new DescriptorCache());
+        Set<String> missing = new HashSet<>(EXPECTED);
+        missing.removeAll(classes);
+        assertEquals(Set.of(), missing);
+    }
+
+    @Test
+    void descriptorsAreParsedOnce() {
+        DescriptorCache descriptors = new DescriptorCache();
+        String[] classes = descriptors.classesOf("(Ltest/Param;I)Ltest/Result;");
+        assertArrayEquals(new String[]{"test.Param", "test.Result"}, classes);
+        assertSame(classes, descriptors.classesOf("(Ltest/Param;I)Ltest/Result;"));
+        assertSame(descriptors.classNameOf("test/Param"), descriptors.classNameOf("test/Param"));
+        assertEquals(0, descriptors.classesOf("()V").length);
+    }
+
+    @Test
+    void descriptorCacheIsBounded() {
+        DescriptorCache descriptors = new DescriptorCache(4);
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(new String[]{"test.C" + i}, descriptors.classesOf("Ltest/C" + i + ";"));
+            assertEquals("test.D" + i, descriptors.classNameOf("test/D" + i));
+        }
+        assertTrue(descriptors.size() <= 8);
+    }
+}
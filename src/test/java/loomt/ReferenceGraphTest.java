@@ -0,0 +1,65 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceGraphTest {
+    private static final Map<String, List<String>> REFERENCES = Map.of(
+            "R", List.of("A", "B"),
+            "A", List.of("C", "A"),
+            "B", List.of("C", "D"),
+            "C", List.of("D", "E"),
+            "E", List.of("R"));
+    private static final Map<String, Integer> SOURCES = Map.of("R", 0, "A", 0, "B", 1, "C", 1, "E", 2);
+
+    private static ReferenceGraph graph(List<String> roots) throws Exception {
+        ClassGraphTraversal traversal = new ClassGraphTraversal(className -> REFERENCES.containsKey(className)
+                ? new LinkedHashSet<>(REFERENCES.get(className)) : null);
+        return traversal.buildReferenceGraph(roots, SOURCES::get, List.of("a.jar", "b.jar", "c.jar"));
+    }
+
+    @Test
+    void shortestChain() throws Exception {
+        ReferenceGraph graph = graph(List.of("R"));
+        assertEquals(List.of("R"), graph.findShortestChain("R"));
+        assertEquals(List.of("R", "B", "D"), graph.findShortestChain("D"));
+        assertEquals(List.of("R", "A", "C", "E"), graph.findShortestChain("E"));
+        assertEquals(List.of(), graph.findShortestChain("X"));
+    }
+
+    @Test
+    void shortestChainFromNearestRoot() throws Exception {
+        assertEquals(List.of("C", "E"), graph(List.of("R", "C")).findShortestChain("E"));
+    }
+
+    @Test
+    void referencingClassesAndJars() throws Exception {
+        ReferenceGraph graph = graph(List.of("R"));
+        assertEquals(List.of("B", "C"), graph.getReferencingClasses("D"));
+        assertEquals(List.of("b.jar"), graph.getReferencingJars("D"));
+        // self references are left out
+        assertEquals(List.of("R"), graph.getReferencingClasses("A"));
+        assertEquals(List.of("A", "B"), graph.getReferencingClasses("C"));
+        assertEquals(List.of("a.jar", "b.jar"), graph.getReferencingJars("C"));
+        assertEquals(List.of("E"), graph.getReferencingClasses("R"));
+        assertEquals(List.of("c.jar"), graph.getReferencingJars("R"));
+        assertEquals(List.of(), graph.getReferencingClasses("X"));
+        assertEquals(List.of(), graph.getReferencingJars("X"));
+    }
+
+    @Test
+    void classLocations() throws Exception {
+        ReferenceGraph graph = graph(List.of("R"));
+        assertTrue(graph.contains("D"));
+        assertTrue(graph.isMissing("D"));
+        assertNull(graph.getJarPath("D"));
+        assertFalse(graph.isMissing("C"));
+        assertEquals("b.jar", graph.getJarPath("C"));
+        assertFalse(graph.contains("X"));
+        assertFalse(graph.isMissing("X"));
+        assertNull(graph.getJarPath("X"));
+    }
+}
@@ -0,0 +1,49 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceSetCacheTest {
+    private final File moduleA = new File("build/resources/test/ModuleA-1.0.jar");
+
+    @Test
+    void evictsLeastRecentlyUsed() throws IOException {
+        try (ClassSource source = ClassSource.open(moduleA)) {
+            ReferenceSetCache probe = new ReferenceSetCache(Long.MAX_VALUE);
+            probe.put(source, "com.a.A", Set.of("com.b.B"));
+            long entrySize = probe.getEstimatedBytes();
+
+            ReferenceSetCache cache = new ReferenceSetCache(2 * entrySize);
+            cache.put(source, "com.a.A", Set.of("com.b.B"));
+            cache.put(source, "com.a.C", Set.of("com.b.D"));
+            // touch A, so C is the least recently used one
+            assertNotNull(cache.get(source, "com.a.A"));
+            cache.put(source, "com.a.E", Set.of("com.b.F"));
+            assertEquals(2, cache.size());
+            assertNull(cache.get(source, "com.a.C"));
+            assertEquals(Set.of("com.b.B"), cache.get(source, "com.a.A"));
+            assertEquals(Set.of("com.b.F"), cache.get(source, "com.a.E"));
+            assertTrue(cache.getEstimatedBytes() <= 2 * entrySize);
+        }
+    }
+
+    @Test
+    void removesEntriesOfSource() throws IOException {
+        try (ClassSource first = ClassSource.open(moduleA); ClassSource second = ClassSource.open(moduleA)) {
+            ReferenceSetCache cache = new ReferenceSetCache(Long.MAX_VALUE);
+            cache.put(first, "com.a.A", Set.of("com.b.B"));
+            cache.put(second, "com.a.A", Set.of("com.b.C"));
+            cache.remove(first);
+            assertNull(cache.get(first, "com.a.A"));
+            assertEquals(Set.of("com.b.C"), cache.get(second, "com.a.A"));
+            cache.clear();
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.getEstimatedBytes());
+        }
+    }
+}
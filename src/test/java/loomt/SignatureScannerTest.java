@@ -0,0 +1,62 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureScannerTest {
+    private static Set<String> scan(String signature) {
+        Set<String> classes = new HashSet<>();
+        new SignatureScanner(classes).addSignature(signature);
+        return classes;
+    }
+
+    @Test
+    void descriptors() {
+        assertEquals(Set.of(), scan("I"));
+        assertEquals(Set.of(), scan("[[J"));
+        assertEquals(Set.of("com.name.Class"), scan("Lcom/name/Class;"));
+        assertEquals(Set.of("com.name.Class"), scan("[[Lcom/name/Class;"));
+        assertEquals(Set.of("com.a.A", "com.b.B", "com.c.C"), scan("(ILcom/a/A;[Lcom/b/B;J)Lcom/c/C;"));
+        assertEquals(Set.of(), scan("()V"));
+    }
+
+    @Test
+    void genericSignatures() {
+        assertEquals(Set.of("java.util.Map", "java.lang.String", "java.util.List", "com.name.Class"),
+                scan("Ljava/util/Map<Ljava/lang/String;Ljava/util/List<+Lcom/name/Class;>;>;"));
+        assertEquals(Set.of("java.util.List", "com.name.Class"), scan("Ljava/util/List<-[Lcom/name/Class;>;"));
+        assertEquals(Set.of("java.util.List"), scan("Ljava/util/List<*>;"));
+        assertEquals(Set.of("java.util.List"), scan("Ljava/util/List<TTLast;>;"));
+        // type variables named like class types
+        assertEquals(Set.of(), scan("TL;"));
+    }
+
+    @Test
+    void innerClassesOfGenericClasses() {
+        assertEquals(Set.of("com.Outer", "com.Outer$Inner", "java.lang.String"),
+                scan("Lcom/Outer<Ljava/lang/String;>.Inner;"));
+        assertEquals(Set.of("com.Outer", "com.Outer$Inner", "com.Outer$Inner$Deep", "java.lang.Integer",
+                        "java.lang.String"),
+                scan("Lcom/Outer<Ljava/lang/Integer;>.Inner<Ljava/lang/String;>.Deep;"));
+    }
+
+    @Test
+    void classAndMethodSignatures() {
+        // empty class bound followed by an interface bound, identifiers that look like types
+        assertEquals(Set.of("java.lang.Object", "java.lang.Comparable", "com.Base", "com.Iface"),
+                scan("<LT:Ljava/lang/Object;I::Ljava/lang/Comparable<TI;>;>Lcom/Base<TLT;>;Lcom/Iface;"));
+        assertEquals(Set.of("java.lang.Number", "java.util.List", "com.Result", "java.io.IOException"),
+                scan("<T:Ljava/lang/Number;>(Ljava/util/List<TT;>;I)Lcom/Result;^Ljava/io/IOException;^TT;"));
+    }
+
+    @Test
+    void longNamesGrowTheBuffer() {
+        String name = "com/" + "a".repeat(500) + "/Class";
+        assertEquals(Set.of(name.replace('/', '.'), "java.util.List"),
+                scan("Ljava/util/List<L" + name + ";>;"));
+    }
+}
@@ -0,0 +1,142 @@
+package loomt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipArchiveTest {
+    private final String jarPath = "build/resources/test/";
+
+    @Test
+    void readsSameEntriesAsZipFile() throws IOException {
+        Path jar = Path.of(jarPath + "commons-io-2.16.1.jar");
+        ZipArchive archive = ZipArchive.open(jar);
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            assertEquals(zipFile.size(), archive.size());
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                int index = archive.find(entry.getName());
+                assertEquals(entry.getName(), archive.name(index));
+                try (InputStream expected = zipFile.getInputStream(entry); InputStream actual = archive.open(index)) {
+                    assertArrayEquals(expected.readAllBytes(), actual.readAllBytes(), entry.getName());
+                }
+            }
+        }
+        assertEquals(-1, archive.find("com/jetbrains/internship2024/OnePiece.class"));
+    }
+
+    @Test
+    void centralDirectoryChecksums() throws IOException {
+        Path jar = Path.of(jarPath + "commons-io-2.16.1.jar");
+        ZipArchive archive = ZipArchive.open(jar);
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                int index = archive.find(entry.getName());
+                assertEquals(entry.getCrc(), archive.crc(index) & 0xFFFFFFFFL, entry.getName());
+                assertEquals(entry.getSize(), (long) archive.uncompressedSize(index), entry.getName());
+            }
+        }
+    }
+
+    @Test
+    void skipsPrecedingDataAndComment() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[] {'J', 'M', 1, 0});
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.setComment("comment");
+            out.putNextEntry(new ZipEntry("classes/A.class"));
+            out.write(new byte[] {1, 2, 3});
+            out.closeEntry();
+        }
+        ZipArchive archive = new ZipArchive(ByteBuffer.wrap(bytes.toByteArray()));
+        try (InputStream in = archive.open(archive.find("classes/A.class"))) {
+            assertArrayEquals(new byte[] {1, 2, 3}, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void opensStoredNestedArchive(@TempDir Path directory) throws IOException {
+        byte[] nested = Files.readAllBytes(Path.of(jarPath + "ModuleA-1.0.jar"));
+        Path fatJar = directory.resolve("app.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(fatJar))) {
+            out.putNextEntry(storedEntry("BOOT-INF/lib/compressed.jar", nested));
+            out.write(nested);
+            out.closeEntry();
+        }
+        ZipArchive archive = ZipArchive.open(fatJar);
+        int index = archive.find("BOOT-INF/lib/compressed.jar");
+        assertTrue(archive.isStored(index));
+        ZipArchive nestedArchive = archive.openNested(index);
+        try (ZipFile expected = new ZipFile(jarPath + "ModuleA-1.0.jar")) {
+            assertEquals(expected.size(), nestedArchive.size());
+            ZipEntry entry = expected.getEntry("com/jetbrains/internship2024/ClassA.class");
+            try (InputStream in = expected.getInputStream(entry)) {
+                assertArrayEquals(in.readAllBytes(),
+                        nestedArchive.open(nestedArchive.find(entry.getName())).readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void rejectsNonArchive() {
+        assertThrows(ZipException.class, () -> new ZipArchive(ByteBuffer.wrap(new byte[100])));
+    }
+
+    @Test
+    void rejectsRecordsOutsideCentralDirectory() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("a/A.class"));
+            zip.write(new byte[]{1, 2, 3});
+        }
+        byte[] archive = bytes.toByteArray();
+        int central = 0;
+        while (ByteBuffer.wrap(archive, central, 4).order(ByteOrder.LITTLE_ENDIAN).getInt() != 0x02014b50) {
+            central++;
+        }
+        assertEquals(1, new ZipArchive(ByteBuffer.wrap(archive)).size());
+
+        // name length reaching past the end of the archive
+        byte[] longName = archive.clone();
+        longName[central + 28] = (byte) 0xFF;
+        longName[central + 29] = (byte) 0xFF;
+        assertThrows(ZipException.class, () -> new ZipArchive(ByteBuffer.wrap(longName)));
+
+        // local header offset pointing into the central directory
+        byte[] badOffset = archive.clone();
+        badOffset[central + 42] = (byte) central;
+        badOffset[central + 43] = (byte) (central >>> 8);
+        assertThrows(ZipException.class, () -> new ZipArchive(ByteBuffer.wrap(badOffset)));
+    }
+
+    /**
+     * @return entry stored without compression, which needs its size and CRC up front
+     */
+    static ZipEntry storedEntry(String name, byte[] content) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        return entry;
+    }
+}